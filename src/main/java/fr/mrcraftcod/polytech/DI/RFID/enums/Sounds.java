@@ -1,5 +1,6 @@
 package fr.mrcraftcod.polytech.DI.RFID.enums;
 
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
 import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -28,7 +29,7 @@ public enum Sounds
 	public synchronized void playSound()
 	{
 		if(play)
-			new Thread(() -> {
+			Threads.start("Sound", true, () -> {
 				try
 				{
 					final Clip clip = AudioSystem.getClip();
@@ -44,6 +45,6 @@ public enum Sounds
 				{
 					Utils.logger.log(Level.WARNING, "Couldn't play sound " + Sounds.this.path, e);
 				}
-			}).start();
+			});
 	}
 }
\ No newline at end of file
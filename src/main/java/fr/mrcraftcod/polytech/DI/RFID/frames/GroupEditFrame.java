@@ -192,7 +192,7 @@ public class GroupEditFrame extends JDialog
 					return;
 				if(e.getExtendedKeyCode() != KeyEvent.VK_DELETE)
 					return;
-				Period period = group.getPeriodByName(GroupEditFrame.this.tablePeriods.getValueAt(rowindex, 0).toString());
+				Period period = getPeriodAt(rowindex);
 				removePeriod(period, rowindex);
 				try
 				{
@@ -235,7 +235,7 @@ public class GroupEditFrame extends JDialog
 					GroupEditFrame.this.tablePeriods.clearSelection();
 				int rowindex = GroupEditFrame.this.tablePeriods.getSelectedRow();
 				if(event.getClickCount() == 2 && event.getComponent() instanceof JTable)
-					editPeriod(group.getPeriodByName(GroupEditFrame.this.tablePeriods.getValueAt(rowindex, 0).toString()), rowindex);
+					editPeriod(getPeriodAt(rowindex), rowindex);
 			}
 
 			@Override
@@ -249,7 +249,7 @@ public class GroupEditFrame extends JDialog
 				int rowindex = GroupEditFrame.this.tablePeriods.getSelectedRow();
 				if(event.isPopupTrigger() && event.getComponent() instanceof JTable)
 				{
-					Period period = group.getPeriodByName(GroupEditFrame.this.tablePeriods.getValueAt(rowindex, 0).toString());
+					Period period = getPeriodAt(rowindex);
 					JPopupMenu popup = new JPopupMenu();
 					JMenuItem deletePeriod = new JMenuItem(Utils.resourceBundle.getString("remove_period"));
 					deletePeriod.addActionListener(event1 -> {
@@ -431,6 +431,20 @@ public class GroupEditFrame extends JDialog
 		modelStudents.fireTableDataChanged();
 	}
 
+	/**
+	 * Used to get the period of a row of the period table.
+	 *
+	 * @param rowindex The row.
+	 * @return The period.
+	 */
+	private Period getPeriodAt(int rowindex)
+	{
+		Object value = this.tablePeriods.getValueAt(rowindex, 0);
+		if(value instanceof Period)
+			return (Period) value;
+		return group.getPeriodByName(value.toString());
+	}
+
 	/**
 	 * Used to create the period table.
 	 *
@@ -11,7 +11,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 /**
@@ -24,7 +24,7 @@ public class GroupSettingsFrame extends JDialog
 	private static final long serialVersionUID = 937868122855164931L;
 	private final JTable tableGroups;
 	private final JTableUneditableModel modelGroups;
-	private final ArrayList<Group> groups;
+	private final List<Group> groups;
 
 	/**
 	 * Constructor.
@@ -32,7 +32,7 @@ public class GroupSettingsFrame extends JDialog
 	 * @param parent The parent frame.
 	 * @param groups The current groups.
 	 */
-	public GroupSettingsFrame(MainFrame parent, ArrayList<Group> groups)
+	public GroupSettingsFrame(MainFrame parent, List<Group> groups)
 	{
 		super(parent);
 		this.groups = groups;
@@ -219,7 +219,7 @@ public class GroupSettingsFrame extends JDialog
 	 * @param groups The groups of the table.
 	 * @return An array representing the list.
 	 */
-	private Group[][] getTableList(ArrayList<Group> groups)
+	private Group[][] getTableList(List<Group> groups)
 	{
 		Group[][] array = new Group[this.groups.size()][1];
 		int i = 0;
@@ -243,6 +243,7 @@ public class GroupSettingsFrame extends JDialog
 				return;
 			}
 		this.groups.add(group);
+		Utils.scheduleTimeline.update(group);
 		this.modelGroups.addRow(new Group[]{group});
 	}
 
@@ -255,6 +256,8 @@ public class GroupSettingsFrame extends JDialog
 	private void removeGroup(int index, Group group)
 	{
 		groups.remove(group);
+		Utils.scheduleTimeline.remove(group);
+		Utils.periodScheduler.reschedule();
 		modelGroups.removeRow(index);
 		modelGroups.fireTableDataChanged();
 	}
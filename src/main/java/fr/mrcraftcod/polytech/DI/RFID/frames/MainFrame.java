@@ -2,13 +2,24 @@ package fr.mrcraftcod.polytech.DI.RFID.frames;
 
 import fr.mrcraftcod.polytech.DI.RFID.Main;
 import fr.mrcraftcod.polytech.DI.RFID.enums.Sounds;
+import fr.mrcraftcod.polytech.DI.RFID.frames.components.AttendanceTableModel;
 import fr.mrcraftcod.polytech.DI.RFID.frames.components.ImagePanel;
-import fr.mrcraftcod.polytech.DI.RFID.frames.components.JTableUneditableModel;
 import fr.mrcraftcod.polytech.DI.RFID.frames.components.StudentsRenderer;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.CheckListener;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.EnrollmentListener;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.PeriodListener;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.ReaderListener;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.TapListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.CardReader;
 import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import fr.mrcraftcod.polytech.DI.RFID.objects.StageStatistics;
 import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+import fr.mrcraftcod.polytech.DI.RFID.threads.TapPipeline;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
 import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
-import fr.mrcraftcod.polytech.DI.TerminalReader.interfaces.TerminalListener;
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
 import fr.mrcraftcod.polytech.DI.TerminalReader.objects.RFIDCard;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -24,7 +35,9 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Vector;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.logging.Level;
 
 /**
@@ -32,21 +45,32 @@ import java.util.logging.Level;
  *
  * @author COLEAU Victor, COUCHOUD Thomas
  */
-public class MainFrame extends JFrame implements TerminalListener, Runnable
+public class MainFrame extends JFrame implements TapListener, ReaderListener, EnrollmentListener, PeriodListener, CheckListener
 {
 	public static final String VERSION = "1.0";
 	private static final long serialVersionUID = -4989573496325827301L;
-	private final Thread thread;
+	private static final int REFRESH_DELAY = 500;
+	private final Timer refreshTimer;
+	private final DateFormat dateFormat;
+	private final DateFormat nextChangeFormat;
 	private final JPanel cardPanel;
 	private final JPanel staffPanel;
 	private final JLabel cardTextLabel;
 	private final JLabel groupsInfoLabel;
+	private final JLabel pipelineInfoLabel;
+	private final JLabel readersInfoLabel;
+	private final CardReader simulatedReader;
+	private final DefaultListModel<TapEvent> modelEnrollment;
+	private final JList<TapEvent> listEnrollment;
 	private final JTable tableChecked;
 	private final ImagePanel openPanelImage;
-	private final JTableUneditableModel modelChecked;
+	private final AttendanceTableModel modelChecked;
 	public static Color backColor;
-	private boolean cardPresent;
-	private boolean needRefresh;
+	private volatile boolean cardPresent;
+	private final IdentityHashMap<Group, List<Student>> openedGroups;
+	private final HashMap<String, Integer> openedGroupsCount;
+	private volatile String openedGroupsInfo;
+	private boolean databaseLost;
 
 	/**
 	 * Constructor.
@@ -58,8 +82,11 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		backColor = new Color(224, 242, 255);
 		setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
 		setPreferredSize(new Dimension(800, 600));
-		needRefresh = false;
+		openedGroups = new IdentityHashMap<>();
+		openedGroupsCount = new HashMap<>();
+		openedGroupsInfo = "";
 		cardPresent = false;
+		simulatedReader = new CardReader("Simulation", Utils.tapPipeline, null);
 		addWindowListener(new WindowListener()
 		{
 			@Override
@@ -116,9 +143,18 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 			public void actionPerformed(ActionEvent e)
 			{
 				if(!cardPresent)
-					cardAdded(new RFIDCard("", JOptionPane.showInputDialog(MainFrame.this, "Entrez l'UID de la carte:", "Simuler une carte", JOptionPane.QUESTION_MESSAGE), null));
+				{
+					String uid = JOptionPane.showInputDialog(MainFrame.this, "Entrez l'UID de la carte:", "Simuler une carte", JOptionPane.QUESTION_MESSAGE);
+					if(uid == null)
+						return;
+					cardPresent = true;
+					simulatedReader.cardAdded(new RFIDCard("", uid, null));
+				}
 				else
-					cardRemoved();
+				{
+					cardPresent = false;
+					simulatedReader.cardRemoved();
+				}
 			}
 		});
 		// ///////////////////////////////////////////////////////////////////////////////////////////
@@ -131,6 +167,7 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		JMenuItem menuItemExportSQL = new JMenuItem(Utils.resourceBundle.getString("menu_item_export_sql"));
 		JMenuItem menuItemImportSQL = new JMenuItem(Utils.resourceBundle.getString("menu_item_import_sql"));
 		JMenuItem menuItemImportCSV = new JMenuItem(Utils.resourceBundle.getString("menu_item_import_csv"));
+		JMenuItem menuItemImportChecks = new JMenuItem(Utils.resourceBundle.getString("menu_item_import_checks"));
 		menuItemExit.addActionListener(event -> Utils.exit(0));
 		menuItemHelp.addActionListener(event -> {
 			try
@@ -146,10 +183,12 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		menuItemExportSQL.addActionListener(event -> Utils.exportSQL(this));
 		menuItemImportSQL.addActionListener(event -> Utils.importSQL(this));
 		menuItemImportCSV.addActionListener(event -> Utils.importCSV(this));
+		menuItemImportChecks.addActionListener(event -> Utils.importChecks(this));
 		menuFile.add(menuItemExportSQL);
 		menuFile.add(menuItemImportSQL);
 		menuFile.addSeparator();
 		menuFile.add(menuItemImportCSV);
+		menuFile.add(menuItemImportChecks);
 		menuFile.addSeparator();
 		menuFile.add(menuItemExit);
 		menuHelp.add(menuItemHelp);
@@ -164,6 +203,10 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		groupsInfoLabel = new JLabel();
 		groupsInfoLabel.setVerticalAlignment(JLabel.CENTER);
 		groupsInfoLabel.setHorizontalAlignment(JLabel.CENTER);
+		pipelineInfoLabel = new JLabel();
+		pipelineInfoLabel.setHorizontalAlignment(JLabel.CENTER);
+		readersInfoLabel = new JLabel();
+		readersInfoLabel.setHorizontalAlignment(JLabel.CENTER);
 		openPanelImage = new ImagePanel();
 		openPanelImage.setPreferredSize(new Dimension(20, 20));
 		openPanelImage.setBackground(backColor);
@@ -200,17 +243,8 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		});
 		DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
 		centerRenderer.setHorizontalAlignment(JLabel.CENTER);
-		modelChecked = new JTableUneditableModel(new Student[][]{}, new String[]{Utils.resourceBundle.getString("name")});
-		this.tableChecked = new JTable(modelChecked)
-		{
-			private static final long serialVersionUID = 4244155500155330717L;
-
-			@Override
-			public Class<?> getColumnClass(int column)
-			{
-				return Student.class;
-			}
-		};
+		modelChecked = new AttendanceTableModel(Utils.resourceBundle.getString("name"));
+		this.tableChecked = new JTable(modelChecked);
 		this.tableChecked.addMouseListener(new MouseListener()
 		{
 			@Override
@@ -237,7 +271,8 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 					return;
 				if(event.isPopupTrigger() && event.getComponent() instanceof JTable)
 				{
-					Student student = Utils.getStudentByName(MainFrame.this.tableChecked.getValueAt(rowindex, 0).toString().replace("(Staff)", "").trim(), false);
+					int modelRow = MainFrame.this.tableChecked.convertRowIndexToModel(rowindex);
+					Student student = modelChecked.getStudentAt(modelRow);
 					JPopupMenu popup = new JPopupMenu();
 					JMenuItem checkStudent = new JMenuItem(Utils.resourceBundle.getString("check_student"));
 					checkStudent.addActionListener(event1 -> {
@@ -261,7 +296,7 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 							Utils.logger.log(Level.WARNING, "", exception);
 						}
 					});
-					if(!Utils.hasChecked(student))
+					if(!modelChecked.isChecked(modelRow))
 						popup.add(checkStudent);
 					else
 						popup.add(uncheckStudent);
@@ -288,6 +323,7 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		this.tableChecked.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 		this.tableChecked.setGridColor(Color.BLACK);
 		TableRowSorter<TableModel> sorter = new TableRowSorter<>(tableChecked.getModel());
+		sorter.setSortsOnUpdates(true);
 		tableChecked.setRowSorter(sorter);
 		ArrayList<RowSorter.SortKey> sortKeys = new ArrayList<>();
 		sortKeys.add(new RowSorter.SortKey(0, SortOrder.ASCENDING));
@@ -322,21 +358,46 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		logAllCheck.addActionListener(event -> Utils.configuration.setLogAll(((JCheckBox) event.getSource()).isSelected()));
 		JButton groupSettings = new JButton(Utils.resourceBundle.getString("group_settings"));
 		groupSettings.setBackground(backColor);
-		groupSettings.addActionListener(event -> new GroupSettingsFrame(MainFrame.this, Utils.groups));
+		groupSettings.addActionListener(event -> {
+			new GroupSettingsFrame(MainFrame.this, Utils.groups);
+			reloadOpenedGroups();
+		});
 		JButton sqlSettings = new JButton(Utils.resourceBundle.getString("sql_settings"));
 		sqlSettings.setBackground(backColor);
 		sqlSettings.addActionListener(event -> new SQLSettingsFrame(MainFrame.this));
+		modelEnrollment = new DefaultListModel<>();
+		listEnrollment = new JList<>(modelEnrollment);
+		listEnrollment.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		listEnrollment.setVisibleRowCount(4);
+		listEnrollment.setCellRenderer(new DefaultListCellRenderer()
+		{
+			private static final long serialVersionUID = -2861530247095826107L;
+
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus)
+			{
+				return super.getListCellRendererComponent(list, ((TapEvent) value).getUid(), index, isSelected, cellHasFocus);
+			}
+		});
+		JScrollPane scrollPaneEnrollment = new JScrollPane(listEnrollment);
+		scrollPaneEnrollment.setBorder(BorderFactory.createTitledBorder(Utils.resourceBundle.getString("enrollment_queue")));
+		scrollPaneEnrollment.setBackground(backColor);
+		JButton enrollCard = new JButton(Utils.resourceBundle.getString("enroll_card"));
+		enrollCard.setBackground(backColor);
+		enrollCard.addActionListener(event -> enrollSelectedCard());
+		JButton ignoreCard = new JButton(Utils.resourceBundle.getString("ignore_card"));
+		ignoreCard.setBackground(backColor);
+		ignoreCard.addActionListener(event -> {
+			TapEvent selected = listEnrollment.getSelectedValue();
+			if(selected != null)
+				Utils.enrollmentQueue.remove(selected.getUid());
+		});
 		JButton readerSelect = new JButton(Utils.resourceBundle.getString("select_reader"));
 		readerSelect.setBackground(backColor);
 		readerSelect.addActionListener(event -> {
-			ArrayList<String> selected = new ArrayList<>();
-			selected.add(Utils.configuration.getReaderName());
-			ArrayList<String> selection = new SelectListDialogFrame<String>(MainFrame.this, Utils.resourceBundle.getString("select_reader"), Utils.resourceBundle.getString("selection_reader"), Utils.terminalReader.getReadersName(), selected, false).showDialog();
+			ArrayList<String> selection = new SelectListDialogFrame<String>(MainFrame.this, Utils.resourceBundle.getString("select_reader"), Utils.resourceBundle.getString("selection_reader"), Utils.readers.get(0).getTerminalReader().getReadersName(), new ArrayList<>(Utils.configuration.getReaderNames()), true).showDialog();
 			if(selection != null && selection.size() > 0)
-			{
-				Utils.configuration.setReaderName(selection.get(0));
-				Utils.terminalReader.setTerminalName(selection.get(0));
-			}
+				Utils.setReaders(selection);
 		});
 		line = 0;
 		gcb = new GridBagConstraints();
@@ -358,6 +419,16 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		this.staffPanel.add(addNewCardCheck, gcb);
 		gcb.gridy = line++;
 		this.staffPanel.add(logAllCheck, gcb);
+		gcb.gridy = line++;
+		this.staffPanel.add(scrollPaneEnrollment, gcb);
+		gcb.gridy = line++;
+		this.staffPanel.add(enrollCard, gcb);
+		gcb.gridy = line++;
+		this.staffPanel.add(ignoreCard, gcb);
+		gcb.gridy = line++;
+		this.staffPanel.add(readersInfoLabel, gcb);
+		gcb.gridy = line++;
+		this.staffPanel.add(pipelineInfoLabel, gcb);
 		// ///////////////////////////////////////////////////////////////////////////////////////////
 		JScrollPane scrollPaneChecked = new JScrollPane(this.tableChecked);
 		scrollPaneChecked.setAutoscrolls(false);
@@ -398,179 +469,288 @@ public class MainFrame extends JFrame implements TerminalListener, Runnable
 		gcb.gridy = line++;
 		getContentPane().add(this.cardPanel, gcb);
 		setStaffInfos(false);
-		cardRemoved();
+		showNoCard();
 		pack();
 		setLocationRelativeTo(null);
 		setVisible(true);
-		this.thread = new Thread(this);
-		this.thread.setName("RefreshInfoPanel");
-		this.thread.start();
+		this.dateFormat = new SimpleDateFormat("HH:mm:ss");
+		this.nextChangeFormat = new SimpleDateFormat("EEE HH:mm");
+		this.refreshTimer = new Timer(REFRESH_DELAY, event -> refreshInfos());
+		this.refreshTimer.start();
 	}
 
 	/**
-	 * Called by the {@link TerminalListener} interface when a card id added.
+	 * Called by the {@link ReaderListener} interface when a reader is plugged or unplugged.
 	 * <p>
-	 * Check the student if needed and open the staff panel if it should be
-	 * opened.
+	 * Set the panel text.
 	 *
-	 * @param rfidCard The card added.
+	 * @param reader The reader.
 	 */
 	@Override
-	public void cardAdded(RFIDCard rfidCard)
+	public void readerStatusChanged(CardReader reader)
 	{
-		cardPresent = true;
-		Student student = Utils.getStudentByUID(rfidCard.getUid(), true);
-		if(student == null)
-		{
-			this.cardTextLabel.setText(Utils.resourceBundle.getString("card_detected") + " : " + rfidCard);
-			if(Utils.configuration.isAddNewStudents())
-			{
-				String name = JOptionPane.showInputDialog(this, Utils.resourceBundle.getString("new_card_name") + ":", "");
-				student = new Student(rfidCard.getUid(), name.substring(0, name.lastIndexOf(" ")).trim(), name.substring(name.lastIndexOf(" ")).trim());
-				if(student.hasValidName())
-				{
-					Utils.students.add(student);
-					Utils.sql.addStudentToDatabase(student);
-				}
-			}
-			return;
-		}
-		Utils.logger.log(Level.INFO, Utils.resourceBundle.getString("card_info") + ": " + student + " " + rfidCard);
-		this.cardPanel.setBackground(Color.GREEN);
-		this.cardTextLabel.setText(Utils.resourceBundle.getString("card_detected") + " : " + student.getName());
-		if(Utils.checkStudent(student))
-		{
-			needRefresh = true;
-			Utils.logCheck(student);
+		boolean connected = false;
+		for(CardReader cardReader : Utils.readers)
+			connected |= cardReader.isConnected();
+		if(connected)
+			SwingUtilities.invokeLater(this::showNoCard);
+		else
+			SwingUtilities.invokeLater(() -> {
+				this.cardPanel.setBackground(Color.RED);
+				this.cardTextLabel.setText(Utils.resourceBundle.getString("no_reader").toUpperCase() + "!");
+			});
+	}
+
+	/**
+	 * Called by the {@link TapListener} interface when a known card has been processed.
+	 * <p>
+	 * Show the student and play a sound if he has been checked.
+	 *
+	 * @param event The tap.
+	 * @param student The student owning the card.
+	 * @param checked True if the student has been checked by this tap.
+	 */
+	@Override
+	public void studentTapped(TapEvent event, Student student, boolean checked)
+	{
+		if(checked)
 			Sounds.CARD_CHECKED.playSound();
-		}
+		SwingUtilities.invokeLater(() -> {
+			this.cardPanel.setBackground(Color.GREEN);
+			this.cardTextLabel.setText(Utils.resourceBundle.getString("card_detected") + " : " + student.getName());
+		});
 	}
 
 	/**
-	 * Called by the {@link TerminalListener} interface when a reader is added.
+	 * Called by the {@link TapListener} interface when an unknown card has been processed.
 	 * <p>
-	 * Set the panel text.
+	 * Put the card in the enrollment queue if new cards should be added to the database.
+	 *
+	 * @param event The tap.
 	 */
 	@Override
-	public void cardReaderAdded()
+	public void unknownCardTapped(TapEvent event)
 	{
-		cardRemoved();
+		boolean enroll = Utils.configuration.isAddNewStudents() && Utils.enrollmentQueue.add(event);
+		SwingUtilities.invokeLater(() -> {
+			this.cardPanel.setBackground(Color.ORANGE);
+			if(enroll)
+				this.cardTextLabel.setText(String.format(Utils.resourceBundle.getString("card_enrollment_pending"), event.getUid()));
+			else
+				this.cardTextLabel.setText(Utils.resourceBundle.getString("card_detected") + " : " + event.getUid());
+		});
 	}
 
 	/**
-	 * Called by the {@link TerminalListener} interface when a reader is removed.
+	 * Called by the {@link PeriodListener} interface when a period started.
 	 * <p>
-	 * Set the panel text.
+	 * Add the students of the group to the list.
+	 *
+	 * @param group The group.
+	 * @param period The period.
 	 */
 	@Override
-	public void cardReaderRemoved()
+	public void periodOpened(Group group, Period period)
 	{
-		this.cardPanel.setBackground(Color.RED);
-		this.cardTextLabel.setText(Utils.resourceBundle.getString("no_reader").toUpperCase() + "!");
+		ArrayList<Student> students = group.getAllToCheck();
+		SwingUtilities.invokeLater(() -> setOpenedGroup(group, students));
 	}
 
 	/**
-	 * Called by the {@link TerminalListener} interface when a card id removed.
+	 * Called by the {@link PeriodListener} interface when a period ended.
 	 * <p>
-	 * Set the panel text and eventually close the staff panel.
+	 * Remove the students of the group from the list, if they aren't in another opened group.
+	 *
+	 * @param group The group.
+	 * @param period The period.
 	 */
 	@Override
-	public void cardRemoved()
+	public void periodClosed(Group group, Period period)
+	{
+		SwingUtilities.invokeLater(() -> setOpenedGroup(group, null));
+	}
+
+	/**
+	 * Called by the {@link CheckListener} interface when a student has been checked.
+	 *
+	 * @param group The group.
+	 * @param student The student.
+	 */
+	@Override
+	public void studentChecked(Group group, Student student)
+	{
+		SwingUtilities.invokeLater(() -> modelChecked.setChecked(student, true));
+	}
+
+	/**
+	 * Called by the {@link CheckListener} interface when a student has been unchecked.
+	 *
+	 * @param group The group.
+	 * @param student The student.
+	 */
+	@Override
+	public void studentUnchecked(Group group, Student student)
+	{
+		SwingUtilities.invokeLater(() -> modelChecked.setChecked(student, Utils.hasChecked(student)));
+	}
+
+	/**
+	 * Used to set the students of a group that should be in the list. A student stays in the list while at least one
+	 * of his groups is opened. Only the rows that changed are updated. Must be called from the EDT.
+	 *
+	 * @param group The group.
+	 * @param students The students of its opened period, null if the group isn't in a period anymore.
+	 */
+	private void setOpenedGroup(Group group, List<Student> students)
+	{
+		List<Student> previous = students == null ? openedGroups.remove(group) : openedGroups.put(group, students);
+		if(students != null)
+			for(Student student : students)
+				if(student != null && openedGroupsCount.merge(student.getNameKey(), 1, Integer::sum) == 1)
+					modelChecked.add(student, Utils.hasChecked(student));
+		if(previous != null)
+			for(Student student : previous)
+				if(student != null)
+				{
+					if(openedGroupsCount.merge(student.getNameKey(), -1, Integer::sum) == 0)
+					{
+						openedGroupsCount.remove(student.getNameKey());
+						modelChecked.remove(student);
+					}
+					else
+						modelChecked.setChecked(student, Utils.hasChecked(student));
+				}
+		StringBuilder info = new StringBuilder();
+		for(Group opened : openedGroups.keySet())
+			info.append(Utils.resourceBundle.getString("group")).append(" ").append(opened.getName()).append(": ").append(opened.getCurrentPeriodString()).append("<br />");
+		openedGroupsInfo = info.toString();
+	}
+
+	/**
+	 * Used to set again the students of every group, after the groups were edited. Must be called from the EDT.
+	 */
+	private void reloadOpenedGroups()
+	{
+		for(Group group : new ArrayList<>(openedGroups.keySet()))
+			if(!Utils.groups.contains(group))
+				setOpenedGroup(group, null);
+		for(Group group : Utils.groups)
+			setOpenedGroup(group, group.isCurrentlyPeriod() ? group.getAllToCheck() : null);
+	}
+
+	/**
+	 * Called by the {@link EnrollmentListener} interface when the enrollment queue changed.
+	 * <p>
+	 * Update the list of the staff panel.
+	 */
+	@Override
+	public void enrollmentQueueChanged()
+	{
+		SwingUtilities.invokeLater(() -> {
+			TapEvent selected = listEnrollment.getSelectedValue();
+			modelEnrollment.clear();
+			for(TapEvent event : Utils.enrollmentQueue.getPendingCards())
+				modelEnrollment.addElement(event);
+			if(selected != null)
+				listEnrollment.setSelectedValue(selected, false);
+		});
+	}
+
+	/**
+	 * Used to ask the name of the owner of the selected card in the enrollment list and enroll it. The database is
+	 * updated in background.
+	 */
+	private void enrollSelectedCard()
+	{
+		TapEvent selected = listEnrollment.getSelectedValue();
+		if(selected == null)
+			return;
+		String name = JOptionPane.showInputDialog(this, Utils.resourceBundle.getString("new_card_name") + " (" + selected.getUid() + "):", "");
+		if(name == null)
+			return;
+		name = name.trim();
+		if(name.lastIndexOf(" ") < 1)
+		{
+			JOptionPane.showMessageDialog(this, Utils.resourceBundle.getString("wrong_student_name"), Utils.resourceBundle.getString("error").toUpperCase(), JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		String surname = name.substring(0, name.lastIndexOf(" ")).trim();
+		String firstname = name.substring(name.lastIndexOf(" ")).trim();
+		Threads.start("Enrollment", true, () -> Utils.enrollmentQueue.enroll(selected.getUid(), surname, firstname));
+	}
+
+	/**
+	 * Called by the {@link TapListener} interface when a card removal has been processed.
+	 * <p>
+	 * Set the panel text.
+	 *
+	 * @param event The event.
+	 */
+	@Override
+	public void cardRemoved(TapEvent event)
+	{
+		SwingUtilities.invokeLater(this::showNoCard);
+	}
+
+	/**
+	 * Used to show that there isn't any card on the reader.
+	 */
+	private void showNoCard()
 	{
-		cardPresent = false;
 		this.cardPanel.setBackground(Color.ORANGE);
 		this.cardTextLabel.setText(Utils.resourceBundle.getString("no_card"));
 	}
 
 	/**
-	 * Used to exit the frame and stop the thread.
+	 * Used to exit the frame and stop the refresh of the infos.
 	 */
 	public void exit()
 	{
-		if(this.thread != null)
-			this.thread.interrupt();
+		this.refreshTimer.stop();
 		dispose();
 	}
 
-	@Override
-	public void run()
+	/**
+	 * Used to refresh the state of the database, the opened groups and the readers. Called from the EDT by the refresh
+	 * timer.
+	 */
+	private void refreshInfos()
 	{
-		DateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
-		while(!Thread.interrupted())
+		Date date = new Date(WeekClock.currentTimeMillis());
+		if(!Utils.databaseMonitor.isDatabaseConnected())
 		{
-			try
+			databaseLost = true;
+			if(Utils.sql.isLogging())
 			{
-				Thread.sleep(500);
+				this.cardPanel.setBackground(Color.ORANGE);
+				this.cardTextLabel.setText(Utils.resourceBundle.getString("sql_retry_now"));
 			}
-			catch(InterruptedException exception)
+			else
 			{
+				this.cardPanel.setBackground(Color.RED);
+				this.cardTextLabel.setText(String.format(Utils.resourceBundle.getString("sql_retry"), Math.max(0, Utils.databaseMonitor.getRetryDelay()) / 1000));
 			}
-			Date date = new Date();
-			if(!Utils.sql.isConnected())
-			{
-				if(date.getTime() > (Utils.sql.getLastConnectTime().getTime() + 15000))
-				{
-					if(!Utils.sql.isLogging())
-					{
-						this.cardPanel.setBackground(Color.ORANGE);
-						this.cardTextLabel.setText(Utils.resourceBundle.getString("sql_retry_now"));
-						if(Utils.sql.login())
-						{
-							this.cardPanel.setBackground(Color.GREEN);
-							this.cardTextLabel.setText(Utils.resourceBundle.getString("sql_connected"));
-							Utils.students.addAll(Utils.removeDuplicates(Utils.sql.getAllStudents()));
-						}
-					}
-				}
-				else if(!Utils.sql.isLogging())
-				{
-					this.cardPanel.setBackground(Color.RED);
-					this.cardTextLabel.setText(String.format(Utils.resourceBundle.getString("sql_retry"), (15000 - (date.getTime() - Utils.sql.getLastConnectTime().getTime())) / 1000));
-				}
-			}
-			StringBuilder groupsInfo = new StringBuilder("<html><p align=\"center\">").append(dateFormat.format(date)).append("<br />");
-			ArrayList<Student> toCheck = new ArrayList<>();
-			for(Group group : Utils.groups)
-			{
-				group.update();
-				toCheck.addAll(group.getAllToCheck());
-				if(group.isCurrentlyPeriod())
-					groupsInfo.append(Utils.resourceBundle.getString("group")).append(" ").append(group.getName()).append(": ").append(group.getCurrentPeriodString()).append("<br />");
-			}
-			this.groupsInfoLabel.setText(groupsInfo.append("</p></html>").toString());
-			Utils.removeDuplicates(toCheck);
-			Vector vec = modelChecked.getDataVector();
-			for(Student student : toCheck)
-				if(student != null)
-					if(!Utils.containsStudent(vec, student))
-					{
-						needRefresh = true;
-						SwingUtilities.invokeLater(() -> {
-							try
-							{
-								modelChecked.addRow(new Student[]{student});
-							}
-							catch(Exception e)
-							{
-							}
-						});
-					}
-			for(int i = 0; i < modelChecked.getRowCount(); i++)
-				if(!Utils.containsStudent(toCheck, ((Student) modelChecked.getValueAt(i, 0))))
-				{
-					needRefresh = true;
-					modelChecked.removeRow(i);
-				}
-			if(needRefresh)
-				try
-				{
-					modelChecked.fireTableDataChanged();
-					needRefresh = false;
-				}
-				catch(NullPointerException e)
-				{
-					needRefresh = true;
-				}
+		}
+		else if(databaseLost)
+		{
+			databaseLost = false;
+			this.cardPanel.setBackground(Color.GREEN);
+			this.cardTextLabel.setText(Utils.resourceBundle.getString("sql_connected"));
+		}
+		StringBuilder groupsInfo = new StringBuilder("<html><p align=\"center\">").append(dateFormat.format(date)).append("<br />");
+		groupsInfo.append(openedGroupsInfo);
+		int minutesToNext = Utils.scheduleTimeline.getMinutesToNextTransitionAt(date.getTime());
+		if(minutesToNext > 0)
+			groupsInfo.append(String.format(Utils.resourceBundle.getString("next_period_change"), nextChangeFormat.format(new Date((date.getTime() / 60000 + minutesToNext) * 60000)))).append("<br />");
+		this.groupsInfoLabel.setText(groupsInfo.append("</p></html>").toString());
+		if(this.staffPanel.isVisible())
+		{
+			StageStatistics total = Utils.tapPipeline.getStatistics(TapPipeline.Stage.TOTAL);
+			StringBuilder readersInfo = new StringBuilder("<html><p align=\"center\">");
+			for(CardReader reader : Utils.readers)
+				readersInfo.append(String.format(Utils.resourceBundle.getString("reader_info"), reader.getName().equals("") ? Utils.resourceBundle.getString("reader_default") : reader.getName(), Utils.resourceBundle.getString(reader.isConnected() ? "reader_connected" : "reader_disconnected"), reader.getTapCount(), reader.getCheckCount(), reader.getTapsLastMinute())).append("<br />");
+			this.readersInfoLabel.setText(readersInfo.append("</p></html>").toString());
+			this.pipelineInfoLabel.setText("<html><p align=\"center\">" + String.format(Utils.resourceBundle.getString("tap_pipeline_info"), Utils.tapPipeline.getQueueDepth(), Utils.tapPipeline.getDroppedCount(), total.getAverageNanos() / 1000000.0, total.getMaxNanos() / 1000000.0) + "</p></html>");
 		}
 	}
 
@@ -0,0 +1,177 @@
+package fr.mrcraftcod.polytech.DI.RFID.frames.components;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Model of the table of the students to check.
+ * <p>
+ * The students are kept in an array with an index from their name key to their row, so finding, adding or removing a
+ * student doesn't scan the table. A student is identified as in {@link Student#equals(Object)}, so the check events
+ * find his row even if his card was replaced. Only the rows that changed are notified to the table. The rows aren't kept in any
+ * order: a removed row is replaced by the last one, the table sorting them.
+ * <p>
+ * Each row also holds whether its student has checked, updated from the check events, so drawing a row doesn't look
+ * into the groups.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class AttendanceTableModel extends AbstractTableModel
+{
+	private static final long serialVersionUID = -3320964217480364471L;
+	private final String columnName;
+	private final HashMap<String, Integer> rowsByName;
+	private Student[] students;
+	private boolean[] checked;
+	private int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param columnName The name of the column.
+	 */
+	public AttendanceTableModel(String columnName)
+	{
+		this.columnName = columnName;
+		this.rowsByName = new HashMap<>();
+		this.students = new Student[64];
+		this.checked = new boolean[64];
+	}
+
+	/**
+	 * Used to add a student.
+	 *
+	 * @param student The student.
+	 * @param studentChecked Has the student already checked?
+	 * @return True if added, false if already in the table.
+	 */
+	public boolean add(Student student, boolean studentChecked)
+	{
+		if(rowsByName.containsKey(student.getNameKey()))
+			return false;
+		if(size == students.length)
+		{
+			students = Arrays.copyOf(students, size * 2);
+			checked = Arrays.copyOf(checked, size * 2);
+		}
+		students[size] = student;
+		checked[size] = studentChecked;
+		rowsByName.put(student.getNameKey(), size);
+		size++;
+		fireTableRowsInserted(size - 1, size - 1);
+		return true;
+	}
+
+	/**
+	 * Used to remove a student.
+	 *
+	 * @param student The student.
+	 * @return True if removed, false if not in the table.
+	 */
+	public boolean remove(Student student)
+	{
+		Integer row = rowsByName.remove(student.getNameKey());
+		if(row == null)
+			return false;
+		int last = --size;
+		if(row != last)
+		{
+			students[row] = students[last];
+			checked[row] = checked[last];
+			rowsByName.put(students[row].getNameKey(), row);
+		}
+		students[last] = null;
+		fireTableRowsDeleted(last, last);
+		if(row != last)
+			fireTableRowsUpdated(row, row);
+		return true;
+	}
+
+	/**
+	 * Used to set if a student has checked. The row is drawn again only if it changed.
+	 *
+	 * @param student The student.
+	 * @param studentChecked Has the student checked?
+	 */
+	public void setChecked(Student student, boolean studentChecked)
+	{
+		int row = getRow(student);
+		if(row >= 0 && checked[row] != studentChecked)
+		{
+			checked[row] = studentChecked;
+			fireTableRowsUpdated(row, row);
+		}
+	}
+
+	/**
+	 * Used to know if the student of a row has checked.
+	 *
+	 * @param row The row.
+	 * @return True if checked, false if not.
+	 */
+	public boolean isChecked(int row)
+	{
+		return checked[row];
+	}
+
+	/**
+	 * Used to get the row of a student.
+	 *
+	 * @param student The student.
+	 * @return The row, -1 if not in the table.
+	 */
+	public int getRow(Student student)
+	{
+		Integer row = rowsByName.get(student.getNameKey());
+		return row == null ? -1 : row;
+	}
+
+	/**
+	 * Used to get the student of a row.
+	 *
+	 * @param row The row.
+	 * @return The student.
+	 */
+	public Student getStudentAt(int row)
+	{
+		return students[row];
+	}
+
+	@Override
+	public int getRowCount()
+	{
+		return size;
+	}
+
+	@Override
+	public int getColumnCount()
+	{
+		return 1;
+	}
+
+	@Override
+	public String getColumnName(int column)
+	{
+		return columnName;
+	}
+
+	@Override
+	public Class<?> getColumnClass(int column)
+	{
+		return Student.class;
+	}
+
+	@Override
+	public Object getValueAt(int row, int column)
+	{
+		return students[row];
+	}
+
+	@Override
+	public boolean isCellEditable(int row, int column)
+	{
+		return false;
+	}
+}
@@ -1,7 +1,6 @@
 package fr.mrcraftcod.polytech.DI.RFID.frames.components;
 
 import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
-import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
 import javax.swing.*;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
@@ -28,20 +27,20 @@ public class StudentsRenderer implements TableCellRenderer
 	/**
 	 * Used to get the colour of the cell.
 	 *
-	 * @param value The value of the cell.
+	 * @param checked Has the student of the cell checked?
 	 * @return The color to set for this student.
 	 */
-	public Color getTableBackgroundColour(Student value)
+	public Color getTableBackgroundColour(boolean checked)
 	{
-		return Utils.hasChecked(value) ? Color.GREEN : Color.ORANGE;
+		return checked ? Color.GREEN : Color.ORANGE;
 	}
 
 	@Override
 	public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column)
 	{
 		Component component = this.wrappedRenderer.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-		if(value instanceof Student)
-			component.setBackground(getTableBackgroundColour((Student) value));
+		if(value instanceof Student && table.getModel() instanceof AttendanceTableModel)
+			component.setBackground(getTableBackgroundColour(((AttendanceTableModel) table.getModel()).isChecked(table.convertRowIndexToModel(row))));
 		return component;
 	}
 }
\ No newline at end of file
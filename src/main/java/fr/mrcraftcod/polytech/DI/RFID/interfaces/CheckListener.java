@@ -0,0 +1,30 @@
+package fr.mrcraftcod.polytech.DI.RFID.interfaces;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+
+/**
+ * Interface to be notified when a student is checked or unchecked in a group.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public interface CheckListener
+{
+	/**
+	 * Called when a student has been checked for the current period of a group. Called with the group locked, it
+	 * shouldn't block.
+	 *
+	 * @param group The group.
+	 * @param student The student.
+	 */
+	void studentChecked(Group group, Student student);
+
+	/**
+	 * Called when a student has been unchecked for the current period of a group. Called with the group locked, it
+	 * shouldn't block.
+	 *
+	 * @param group The group.
+	 * @param student The student.
+	 */
+	void studentUnchecked(Group group, Student student);
+}
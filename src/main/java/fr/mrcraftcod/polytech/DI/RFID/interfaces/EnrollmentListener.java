@@ -0,0 +1,14 @@
+package fr.mrcraftcod.polytech.DI.RFID.interfaces;
+
+/**
+ * Interface to be notified when the unknown cards waiting for enrollment change.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public interface EnrollmentListener
+{
+	/**
+	 * Called when a card has been added to or removed from the enrollment queue. May be called from any thread.
+	 */
+	void enrollmentQueueChanged();
+}
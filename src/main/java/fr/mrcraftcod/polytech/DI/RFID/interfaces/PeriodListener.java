@@ -0,0 +1,28 @@
+package fr.mrcraftcod.polytech.DI.RFID.interfaces;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+
+/**
+ * Interface to be notified when the periods of the groups open and close.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public interface PeriodListener
+{
+	/**
+	 * Called when a period of a group has started. Called from the scheduler thread.
+	 *
+	 * @param group The group.
+	 * @param period The period.
+	 */
+	void periodOpened(Group group, Period period);
+
+	/**
+	 * Called when a period of a group has ended, after its absents were written. Called from the scheduler thread.
+	 *
+	 * @param group The group.
+	 * @param period The period.
+	 */
+	void periodClosed(Group group, Period period);
+}
@@ -0,0 +1,18 @@
+package fr.mrcraftcod.polytech.DI.RFID.interfaces;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.CardReader;
+
+/**
+ * Interface to be notified when a card reader is plugged or unplugged.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public interface ReaderListener
+{
+	/**
+	 * Called when the status of a reader changed. Called from the thread of the reader.
+	 *
+	 * @param reader The reader.
+	 */
+	void readerStatusChanged(CardReader reader);
+}
@@ -0,0 +1,35 @@
+package fr.mrcraftcod.polytech.DI.RFID.interfaces;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+
+/**
+ * Interface to be notified of the taps processed by the tap pipeline. Methods are called from the pipeline thread.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public interface TapListener
+{
+	/**
+	 * Called when a known student put his card on a reader.
+	 *
+	 * @param event The tap.
+	 * @param student The student owning the card.
+	 * @param checked True if the student has been checked by this tap, false if already checked or not in a period.
+	 */
+	void studentTapped(TapEvent event, Student student, boolean checked);
+
+	/**
+	 * Called when an unknown card was put on a reader.
+	 *
+	 * @param event The tap.
+	 */
+	void unknownCardTapped(TapEvent event);
+
+	/**
+	 * Called when a card was removed from a reader.
+	 *
+	 * @param event The event.
+	 */
+	void cardRemoved(TapEvent event);
+}
@@ -0,0 +1,226 @@
+package fr.mrcraftcod.polytech.DI.RFID.objects;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.ReaderListener;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.TapListener;
+import fr.mrcraftcod.polytech.DI.RFID.threads.TapPipeline;
+import fr.mrcraftcod.polytech.DI.TerminalReader.interfaces.TerminalListener;
+import fr.mrcraftcod.polytech.DI.TerminalReader.objects.RFIDCard;
+import fr.mrcraftcod.polytech.DI.TerminalReader.threads.TerminalReader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class representing a card reader. It listens to its {@link TerminalReader}, gives the cards to the shared
+ * {@link TapPipeline} and keeps counters about its activity.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class CardReader implements TerminalListener, TapListener
+{
+	private static final int RATE_SECONDS = 60;
+	private final String name;
+	private final TerminalReader terminalReader;
+	private final TapPipeline tapPipeline;
+	private final CopyOnWriteArrayList<ReaderListener> listeners;
+	private final AtomicLong tapCount;
+	private final AtomicLong checkCount;
+	private final int[] tapsPerSecond;
+	private final long[] tapsSecond;
+	private volatile boolean connected;
+
+	/**
+	 * Constructor. The reader starts to listen immediately.
+	 *
+	 * @param name The name of the reader, empty for the default one.
+	 * @param tapPipeline The pipeline processing the taps.
+	 */
+	public CardReader(String name, TapPipeline tapPipeline)
+	{
+		this(name, tapPipeline, new TerminalReader(name));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name The name of the reader.
+	 * @param tapPipeline The pipeline processing the taps.
+	 * @param terminalReader The terminal reader to listen, null if events are injected through the
+	 *                       {@link TerminalListener} methods only.
+	 */
+	public CardReader(String name, TapPipeline tapPipeline, TerminalReader terminalReader)
+	{
+		this.name = name;
+		this.tapPipeline = tapPipeline;
+		this.terminalReader = terminalReader;
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.tapCount = new AtomicLong();
+		this.checkCount = new AtomicLong();
+		this.tapsPerSecond = new int[RATE_SECONDS];
+		this.tapsSecond = new long[RATE_SECONDS];
+		this.connected = true;
+		tapPipeline.addListener(this);
+		if(terminalReader != null)
+			terminalReader.addListener(this);
+	}
+
+	/**
+	 * Used to stop listening to the reader.
+	 */
+	public void stop()
+	{
+		tapPipeline.removeListener(this);
+		if(terminalReader != null)
+			terminalReader.stop();
+	}
+
+	@Override
+	public void cardAdded(RFIDCard rfidCard)
+	{
+		tapCount.incrementAndGet();
+		countTap(System.currentTimeMillis() / 1000);
+		tapPipeline.submit(new TapEvent(TapEvent.Type.CARD_ADDED, name, rfidCard.getUid()));
+	}
+
+	@Override
+	public void cardRemoved()
+	{
+		tapPipeline.submit(new TapEvent(TapEvent.Type.CARD_REMOVED, name, null));
+	}
+
+	@Override
+	public void cardReaderAdded()
+	{
+		connected = true;
+		fireStatusChanged();
+	}
+
+	@Override
+	public void cardReaderRemoved()
+	{
+		connected = false;
+		fireStatusChanged();
+	}
+
+	@Override
+	public void studentTapped(TapEvent event, Student student, boolean checked)
+	{
+		if(checked && name.equals(event.getReaderName()))
+			checkCount.incrementAndGet();
+	}
+
+	@Override
+	public void unknownCardTapped(TapEvent event)
+	{
+	}
+
+	@Override
+	public void cardRemoved(TapEvent event)
+	{
+	}
+
+	/**
+	 * Used to count a tap in the per second counters.
+	 *
+	 * @param second The second of the tap.
+	 */
+	private synchronized void countTap(long second)
+	{
+		int index = (int) (second % RATE_SECONDS);
+		if(tapsSecond[index] != second)
+		{
+			tapsSecond[index] = second;
+			tapsPerSecond[index] = 0;
+		}
+		tapsPerSecond[index]++;
+	}
+
+	/**
+	 * Used to get how many cards were read during the last minute.
+	 *
+	 * @return The number of taps.
+	 */
+	public synchronized int getTapsLastMinute()
+	{
+		long now = System.currentTimeMillis() / 1000;
+		int count = 0;
+		for(int i = 0; i < RATE_SECONDS; i++)
+			if(now - tapsSecond[i] < RATE_SECONDS)
+				count += tapsPerSecond[i];
+		return count;
+	}
+
+	/**
+	 * Used to add a listener.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addListener(ReaderListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * Used to notify the listeners.
+	 */
+	private void fireStatusChanged()
+	{
+		for(ReaderListener listener : listeners)
+			listener.readerStatusChanged(this);
+	}
+
+	/**
+	 * Used to get the name of the reader.
+	 *
+	 * @return The name, empty for the default reader.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Used to get the terminal reader listened.
+	 *
+	 * @return The terminal reader, null if none.
+	 */
+	public TerminalReader getTerminalReader()
+	{
+		return terminalReader;
+	}
+
+	/**
+	 * Used to know if the reader is plugged.
+	 *
+	 * @return True if plugged, false if not.
+	 */
+	public boolean isConnected()
+	{
+		return connected;
+	}
+
+	/**
+	 * Used to get how many cards were read.
+	 *
+	 * @return The number of taps, including the coalesced ones.
+	 */
+	public long getTapCount()
+	{
+		return tapCount.get();
+	}
+
+	/**
+	 * Used to get how many students were checked by this reader.
+	 *
+	 * @return The number of checks.
+	 */
+	public long getCheckCount()
+	{
+		return checkCount.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -1,6 +1,7 @@
 package fr.mrcraftcod.polytech.DI.RFID.objects;
 
 import java.io.*;
+import java.util.ArrayList;
 
 /**
  * Class to save and load some options.
@@ -9,15 +10,17 @@ import java.io.*;
  */
 public class Configuration implements Serializable
 {
-	private static final int SERIALIZATION_VERSION = 2;
+	private static final int SERIALIZATION_VERSION = 5;
 	private static final long serialVersionUID = 8289555994600359883L;
 	private String bddUser;
 	private String bddPassword;
 	private String bddName;
 	private String bddTableName;
 	private String bddIP;
-	private String readerName;
+	private ArrayList<String> readerNames;
 	private int bddPort;
+	private int studentCacheSize;
+	private long debounceDelay;
 	private boolean logAll;
 	private boolean addNewStudents;
 
@@ -32,9 +35,11 @@ public class Configuration implements Serializable
 		this.setBddTableName("students");
 		this.setBddIP("127.0.0.1");
 		this.setBddPort(3306);
-		this.setReaderName("");
+		this.setReaderNames(new ArrayList<>());
 		this.setLogAll(true);
 		this.setAddNewStudents(true);
+		this.setStudentCacheSize(512);
+		this.setDebounceDelay(2000);
 	}
 
 	/**
@@ -80,8 +85,21 @@ public class Configuration implements Serializable
 			this.logAll = ois.readBoolean();
 			this.addNewStudents = ois.readBoolean();
 		}
-		if(ver >= 2)
-			this.readerName = ois.readUTF();
+		this.readerNames = new ArrayList<>();
+		if(ver >= 5)
+		{
+			int readers = ois.readInt();
+			for(int i = 0; i < readers; i++)
+				this.readerNames.add(ois.readUTF());
+		}
+		else if(ver >= 2)
+		{
+			String readerName = ois.readUTF();
+			if(!readerName.equals(""))
+				this.readerNames.add(readerName);
+		}
+		this.studentCacheSize = ver >= 3 ? ois.readInt() : 512;
+		this.debounceDelay = ver >= 4 ? ois.readLong() : 2000;
 	}
 
 	/**
@@ -101,7 +119,11 @@ public class Configuration implements Serializable
 		oos.writeInt(bddPort);
 		oos.writeBoolean(logAll);
 		oos.writeBoolean(addNewStudents);
-		oos.writeUTF(readerName);
+		oos.writeInt(readerNames.size());
+		for(String readerName : readerNames)
+			oos.writeUTF(readerName);
+		oos.writeInt(studentCacheSize);
+		oos.writeLong(debounceDelay);
 	}
 
 	/**
@@ -286,22 +308,62 @@ public class Configuration implements Serializable
 	}
 
 	/**
-	 * Used to get the reader name.
+	 * Used to get the names of the readers to listen.
+	 *
+	 * @return The reader names, empty to use the default reader.
+	 */
+	public ArrayList<String> getReaderNames()
+	{
+		return readerNames;
+	}
+
+	/**
+	 * Used to set the names of the readers to listen.
+	 *
+	 * @param readerNames The reader names.
+	 */
+	public void setReaderNames(ArrayList<String> readerNames)
+	{
+		this.readerNames = readerNames;
+	}
+
+	/**
+	 * Used to get how many students resolved from the database are kept in memory.
+	 *
+	 * @return The cache size.
+	 */
+	public int getStudentCacheSize()
+	{
+		return studentCacheSize;
+	}
+
+	/**
+	 * Used to set how many students resolved from the database are kept in memory.
+	 *
+	 * @param studentCacheSize The cache size.
+	 */
+	public void setStudentCacheSize(int studentCacheSize)
+	{
+		this.studentCacheSize = studentCacheSize;
+	}
+
+	/**
+	 * Used to get the delay during which a same card on a same reader is ignored.
 	 *
-	 * @return The reader name.
+	 * @return The delay in milliseconds.
 	 */
-	public String getReaderName()
+	public long getDebounceDelay()
 	{
-		return readerName;
+		return debounceDelay;
 	}
 
 	/**
-	 * Used to set the reader name.
+	 * Used to set the delay during which a same card on a same reader is ignored.
 	 *
-	 * @param readerName The reader name.
+	 * @param debounceDelay The delay in milliseconds, 0 to process every tap.
 	 */
-	public void setReaderName(String readerName)
+	public void setDebounceDelay(long debounceDelay)
 	{
-		this.readerName = readerName;
+		this.debounceDelay = debounceDelay;
 	}
 }
@@ -1,12 +1,21 @@
 package fr.mrcraftcod.polytech.DI.RFID.objects;
 
+import fr.mrcraftcod.polytech.DI.RFID.utils.ScheduleExceptions;
 import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
 
 /**
  * An object representing a group.
+ * <p>
+ * The group is used from the EDT and from the threads checking the students, so its lists are only modified through
+ * its synchronized methods and only copies of them are given out.
  *
  * @author COLEAU Victor, COUCHOUD Thomas
  */
@@ -17,6 +26,8 @@ public class Group implements Serializable
 	private final ArrayList<Student> students;
 	private final ArrayList<Period> periods;
 	private transient Period currentPeriod;
+	private transient PeriodIndex periodIndex;
+	private transient HashMap<String, Period> periodsByName;
 	private ArrayList<Student> checkedStudents;
 
 	/**
@@ -30,6 +41,8 @@ public class Group implements Serializable
 		this.students = new ArrayList<>();
 		this.checkedStudents = new ArrayList<>();
 		this.periods = new ArrayList<>();
+		this.periodIndex = new PeriodIndex();
+		this.periodsByName = new HashMap<>();
 	}
 
 	/**
@@ -64,7 +77,7 @@ public class Group implements Serializable
 	 *
 	 * @param groups The groups to save.
 	 */
-	public static void saveGroups(ArrayList<Group> groups)
+	public static void saveGroups(List<Group> groups)
 	{
 		for(File file : new File(Utils.baseFile, "Groups").listFiles())
 			file.delete();
@@ -104,30 +117,57 @@ public class Group implements Serializable
 	/**
 	 * Used to remove all null objects from lists.
 	 */
-	private void removeNull()
+	private synchronized void removeNull()
 	{
 		students.remove(null);
 		periods.remove(null);
+		rebuildPeriodIndex();
+	}
+
+	/**
+	 * Used to rebuild the indexes of the periods.
+	 */
+	private void rebuildPeriodIndex()
+	{
+		periodIndex.clear();
+		periodsByName.clear();
+		for(Period period : periods)
+			if(period != null)
+			{
+				if(!periodIndex.add(period))
+					Utils.logger.log(Level.WARNING, "Period " + period + " of group " + name + " overlaps another one and will be partly ignored");
+				periodsByName.put(Period.getNameKey(period.toString()), period);
+			}
 	}
 
 	/**
 	 * Used to get the students of the group.
 	 *
-	 * @return The students.
+	 * @return A copy of the list of students.
 	 */
-	public ArrayList<Student> getStudents()
+	public synchronized ArrayList<Student> getStudents()
 	{
-		return students;
+		return new ArrayList<>(students);
 	}
 
 	/**
 	 * Used to get the periods of the group.
 	 *
-	 * @return The periods.
+	 * @return A copy of the list of periods.
+	 */
+	public synchronized ArrayList<Period> getPeriods()
+	{
+		return new ArrayList<>(periods);
+	}
+
+	/**
+	 * Used to get the index of the periods of the group. The days of a period overlapping another one aren't in it.
+	 *
+	 * @return A copy of the index.
 	 */
-	public ArrayList<Period> getPeriods()
+	public synchronized PeriodIndex getPeriodIndex()
 	{
-		return periods;
+		return new PeriodIndex(periodIndex);
 	}
 
 	/**
@@ -146,9 +186,30 @@ public class Group implements Serializable
 	 * @param student The student to check.
 	 * @return True if checked, false if already checked, not in a checking period or not in this group.
 	 */
-	public boolean checkStudent(Student student)
+	public synchronized boolean checkStudent(Student student)
 	{
-		return isCurrentlyPeriod() && !Utils.containsStudent(checkedStudents, student) && this.checkedStudents.add(student);
+		if(!isCurrentlyPeriod() || Utils.containsStudent(checkedStudents, student) || !this.checkedStudents.add(student))
+			return false;
+		if(Utils.checkJournal != null)
+			Utils.checkJournal.check(this, currentPeriod, student);
+		Utils.fireCheckChanged(this, student, true);
+		return true;
+	}
+
+	/**
+	 * Used to check again a student after a restart, without recording it.
+	 *
+	 * @param nameKey The name key of the student, as given by {@link Student#getNameKey()}.
+	 * @return True if checked, false if not in a checking period, not in this group or already checked.
+	 */
+	public synchronized boolean restoreCheck(String nameKey)
+	{
+		if(!isCurrentlyPeriod())
+			return false;
+		for(Student student : students)
+			if(student != null && student.getNameKey().equals(nameKey))
+				return !Utils.containsStudent(checkedStudents, student) && this.checkedStudents.add(student);
+		return false;
 	}
 
 	/**
@@ -157,7 +218,7 @@ public class Group implements Serializable
 	 * @param file The file where to serialize.
 	 * @throws IOException If the file couldn't be done.
 	 */
-	public void serialize(File file) throws IOException
+	public synchronized void serialize(File file) throws IOException
 	{
 		if(!file.getParentFile().exists())
 			file.getParentFile().mkdirs();
@@ -182,12 +243,9 @@ public class Group implements Serializable
 	 * @param name The period name.
 	 * @return The corresponding period.
 	 */
-	public Period getPeriodByName(String name)
+	public synchronized Period getPeriodByName(String name)
 	{
-		for(Period period : periods)
-			if(period.isSame(name))
-				return period;
-		return null;
+		return periodsByName.get(Period.getNameKey(name));
 	}
 
 	/**
@@ -195,9 +253,16 @@ public class Group implements Serializable
 	 *
 	 * @param period The period to remove.
 	 */
-	public void remove(Period period)
+	public synchronized void remove(Period period)
 	{
 		this.periods.remove(period);
+		if(period.equals(currentPeriod))
+			currentPeriod = null;
+		rebuildPeriodIndex();
+		if(Utils.scheduleTimeline != null)
+			Utils.scheduleTimeline.update(this);
+		if(Utils.periodScheduler != null)
+			Utils.periodScheduler.reschedule();
 	}
 
 	/**
@@ -205,7 +270,7 @@ public class Group implements Serializable
 	 *
 	 * @param name The name of the student.
 	 */
-	public void removeStudent(String name)
+	public synchronized void removeStudent(String name)
 	{
 		for(Student st : students)
 			if(st.isSameName(name))
@@ -220,7 +285,7 @@ public class Group implements Serializable
 	 *
 	 * @param student The student to remove.
 	 */
-	public void remove(Student student)
+	public synchronized void remove(Student student)
 	{
 		ArrayList<Student> toRemove = new ArrayList<>();
 		for(Student stu : students)
@@ -230,7 +295,7 @@ public class Group implements Serializable
 	}
 
 	@Override
-	public int hashCode()
+	public synchronized int hashCode()
 	{
 		return name.hashCode() + this.students.hashCode() + this.periods.hashCode();
 	}
@@ -254,7 +319,7 @@ public class Group implements Serializable
 	 */
 	public ArrayList<Student> getAddableStudents()
 	{
-		return Utils.removeStudentsInList(new ArrayList<>(Utils.getRefreshedStudents()), this.students);
+		return Utils.removeStudentsInList(new ArrayList<>(Utils.getRefreshedStudents()), getStudents());
 	}
 
 	/**
@@ -263,7 +328,7 @@ public class Group implements Serializable
 	 * @param student The student to add.
 	 * @return True if added, false if not.
 	 */
-	public boolean addStudent(Student student)
+	public synchronized boolean addStudent(Student student)
 	{
 		if(student == null)
 			return false;
@@ -275,6 +340,25 @@ public class Group implements Serializable
 		return false;
 	}
 
+	/**
+	 * Used to add several students to the group, the ones already in it being ignored. Unlike
+	 * {@link #addStudent(Student)}, the students are added as given.
+	 *
+	 * @param students The students to add.
+	 * @return How many students were added.
+	 */
+	public synchronized int addStudents(Collection<Student> students)
+	{
+		int added = 0;
+		for(Student student : students)
+			if(student != null && !this.students.contains(student))
+			{
+				this.students.add(student);
+				added++;
+			}
+		return added;
+	}
+
 	/**
 	 * Used to add a period to the group.
 	 *
@@ -283,46 +367,76 @@ public class Group implements Serializable
 	 *
 	 * @throws Exception If period is null
 	 */
-	public boolean addPeriod(Period period) throws Exception
+	public synchronized boolean addPeriod(Period period) throws Exception
 	{
 		if(period == null)
 			throw new Exception("A null period has benn added to the group!");
-		for(Period per : periods)
-			if(per.isOverlapped(period))
-				return false;
+		if(periodIndex.overlaps(period))
+			return false;
 		this.periods.add(period);
+		periodIndex.add(period);
+		periodsByName.put(Period.getNameKey(period.toString()), period);
+		if(Utils.scheduleTimeline != null)
+			Utils.scheduleTimeline.update(this);
+		if(Utils.periodScheduler != null)
+			Utils.periodScheduler.reschedule();
 		return true;
 	}
 
 	/**
-	 * Used to update the current group. Will update current period and write absents file if needed.
+	 * Used to update the current group. Will update current period and give the absents of an ended period to the
+	 * {@link fr.mrcraftcod.polytech.DI.RFID.threads.AbsentsFinaliser}. The end of the period is journaled first, and the
+	 * period is closed in the journal only once its absents are written.
 	 */
-	public void update()
+	public synchronized void update()
 	{
-		if(!periods.contains(currentPeriod))
-			currentPeriod = null;
-		if(currentPeriod == null)
-			currentPeriod = getNewPeriod();
-		else if(!currentPeriod.isInPeriod(new Date()))
+		Period period = resolvePeriod(WeekClock.currentTimeMillis());
+		if(currentPeriod != null && !currentPeriod.equals(period))
 		{
-			Utils.writeAbsents(currentPeriod, this.students, this.checkedStudents);
+			Period ended = currentPeriod;
+			if(Utils.checkJournal != null)
+				Utils.checkJournal.end(this, ended);
+			if(Utils.absentsFinaliser != null)
+				Utils.absentsFinaliser.submit(this, ended, new Date(WeekClock.currentTimeMillis()), this.students, this.checkedStudents, () -> {
+					if(Utils.checkJournal != null)
+						Utils.checkJournal.close(this, ended);
+				});
+			else if(Utils.checkJournal != null)
+				Utils.checkJournal.close(this, ended);
 			this.checkedStudents.clear();
 			currentPeriod = null;
 		}
+		if(currentPeriod == null)
+			currentPeriod = period;
 	}
 
 	/**
-	 * Used to get a new period.
+	 * Used to get the period of the group at an instant, taking the exceptions of its day into account.
 	 *
-	 * @return A period if we are in one, null if no period for the current time.
+	 * @param epochMillis The instant, in milliseconds since the epoch.
+	 * @return The period or null if none.
 	 */
-	private Period getNewPeriod()
+	private Period resolvePeriod(long epochMillis)
 	{
-		Date date = new Date();
-		for(Period period : periods)
-			if(period.isInPeriod(date))
-				return period;
-		return null;
+		int minuteOfWeek = WeekClock.minuteOfWeek(epochMillis);
+		ScheduleExceptions.Day day = Utils.scheduleExceptions == null ? null : Utils.scheduleExceptions.getDay(WeekClock.epochDay(epochMillis));
+		if(day == null)
+			return periodIndex.get(minuteOfWeek);
+		Period session = day.getSession(name, minuteOfWeek);
+		if(session != null || day.isCancelled(name))
+			return session;
+		return periodIndex.get(minuteOfWeek);
+	}
+
+	/**
+	 * Used to get the period of the group containing a date.
+	 *
+	 * @param date The date.
+	 * @return The period or null if the date isn't in any period.
+	 */
+	public synchronized Period getPeriodAt(Date date)
+	{
+		return resolvePeriod(date.getTime());
 	}
 
 	/**
@@ -331,7 +445,7 @@ public class Group implements Serializable
 	 * @param student The student.
 	 * @return True if he have checked, false if not.
 	 */
-	public boolean hasChecked(Student student)
+	public synchronized boolean hasChecked(Student student)
 	{
 		return this.checkedStudents.contains(student);
 	}
@@ -347,17 +461,20 @@ public class Group implements Serializable
 	{
 		in.defaultReadObject();
 		this.checkedStudents = new ArrayList<>();
+		this.periodIndex = new PeriodIndex();
+		this.periodsByName = new HashMap<>();
+		rebuildPeriodIndex();
 	}
 
 	/**
 	 * Used to get the students that should check for this period.
 	 *
-	 * @return A list of students.
+	 * @return A copy of the list of students.
 	 */
-	public ArrayList<Student> getAllToCheck()
+	public synchronized ArrayList<Student> getAllToCheck()
 	{
 		if(isCurrentlyPeriod())
-			return this.students;
+			return new ArrayList<>(this.students);
 		return new ArrayList<>();
 	}
 
@@ -366,7 +483,7 @@ public class Group implements Serializable
 	 *
 	 * @return True if in a period, false if not.
 	 */
-	public boolean isCurrentlyPeriod()
+	public synchronized boolean isCurrentlyPeriod()
 	{
 		return currentPeriod != null;
 	}
@@ -376,13 +493,28 @@ public class Group implements Serializable
 	 *
 	 * @param student The student.
 	 */
-	public void uncheckStudent(Student student)
+	public synchronized void uncheckStudent(Student student)
 	{
 		ArrayList<Student> toRemove = new ArrayList<>();
 		for(Student stu : checkedStudents)
 			if(stu.equals(student))
 				toRemove.add(stu);
-		checkedStudents.removeAll(toRemove);
+		if(checkedStudents.removeAll(toRemove) && currentPeriod != null)
+		{
+			if(Utils.checkJournal != null)
+				Utils.checkJournal.uncheck(this, currentPeriod, student);
+			Utils.fireCheckChanged(this, student, false);
+		}
+	}
+
+	/**
+	 * Used to get the current period.
+	 *
+	 * @return The period, null if not in a period.
+	 */
+	public synchronized Period getCurrentPeriod()
+	{
+		return currentPeriod;
 	}
 
 	/**
@@ -390,7 +522,7 @@ public class Group implements Serializable
 	 *
 	 * @return The period string.
 	 */
-	public String getCurrentPeriodString()
+	public synchronized String getCurrentPeriodString()
 	{
 		if(currentPeriod == null)
 			return Utils.resourceBundle.getString("not_in_period");
@@ -0,0 +1,124 @@
+package fr.mrcraftcod.polytech.DI.RFID.objects;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, used to get their percentiles without keeping every value.
+ * <p>
+ * Values are counted in buckets growing by powers of two, each one split in 16 sub-buckets, so a percentile is known
+ * within about 6% of its real value whatever its magnitude. Recording never locks.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private final AtomicLongArray counts;
+	private final AtomicLong count;
+	private final AtomicLong max;
+
+	/**
+	 * Constructor.
+	 */
+	public LatencyHistogram()
+	{
+		this.counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+		this.count = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * Used to record a latency.
+	 *
+	 * @param nanos The latency in nanoseconds, negative values being counted as 0.
+	 */
+	public void record(long nanos)
+	{
+		nanos = Math.max(0, nanos);
+		counts.incrementAndGet(getIndex(nanos));
+		count.incrementAndGet();
+		long current;
+		while(nanos > (current = max.get()) && !max.compareAndSet(current, nanos))
+			;
+	}
+
+	/**
+	 * Used to get the bucket of a value.
+	 *
+	 * @param value The value.
+	 * @return The index of the bucket.
+	 */
+	private static int getIndex(long value)
+	{
+		if(value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Used to get the highest value of a bucket.
+	 *
+	 * @param index The index of the bucket.
+	 * @return The value.
+	 */
+	private static long getHighestValue(int index)
+	{
+		if(index < SUB_BUCKETS)
+			return index;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+		return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	/**
+	 * Used to get a percentile of the recorded latencies.
+	 *
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return The latency in nanoseconds under which this percentage of the values are, 0 if nothing was recorded.
+	 */
+	public long getPercentile(double percentile)
+	{
+		long total = count.get();
+		if(total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for(int i = 0; i < counts.length(); i++)
+		{
+			seen += counts.get(i);
+			if(seen >= rank)
+				return Math.min(getHighestValue(i), getMaxNanos());
+		}
+		return getMaxNanos();
+	}
+
+	/**
+	 * Used to get how many latencies were recorded.
+	 *
+	 * @return The count.
+	 */
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	/**
+	 * Used to get the highest recorded latency.
+	 *
+	 * @return The latency in nanoseconds.
+	 */
+	public long getMaxNanos()
+	{
+		return max.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("LatencyHistogram[count=%d, p50=%.3fms, p90=%.3fms, p99=%.3fms, p99.9=%.3fms, max=%.3fms]", getCount(), getPercentile(50) / 1e6, getPercentile(90) / 1e6, getPercentile(99) / 1e6, getPercentile(99.9) / 1e6, getMaxNanos() / 1e6);
+	}
+}
@@ -1,18 +1,26 @@
 package fr.mrcraftcod.polytech.DI.RFID.objects;
 
 import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.text.DecimalFormat;
-import java.util.Calendar;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.Date;
-import java.util.Locale;
 import java.util.regex.Pattern;
 
 /**
  * Class representing a period for checking.
+ * <p>
+ * A period is a range of minutes of the day, from its start included to its end excluded, repeated on each of its days.
+ * Both bounds are precomputed as minutes of the day, so knowing if a minute of the week is in the period is a few
+ * integer comparisons.
+ * <p>
+ * As the end is excluded, a period ending at 23h59 doesn't contain the last minute of the day. A period going until
+ * midnight ends at 24h00, the only time allowed after 23h59.
  *
  * @author COLEAU Victor, COUCHOUD Thomas
  */
@@ -26,13 +34,14 @@ public class Period implements Serializable
 	private int startingMinute;
 	private int endingHour;
 	private int endingMinute;
-	private Calendar calendar;
+	private transient int startMinuteOfDay;
+	private transient int endMinuteOfDay;
 	private DecimalFormat decimalFormat;
 
 	/**
 	 * Constructor.
 	 *
-	 * @param period A string representing the period. This should be formatted as <i>xx</i><b>h</b><i>xx</i><b>-</b><i>yy</i><b>h</b><i>yy</i> where <i>xx</i> and <i>yy</i> are the time to set.
+	 * @param period A string representing the period. This should be formatted as <i>xx</i><b>h</b><i>xx</i><b>-</b><i>yy</i><b>h</b><i>yy</i> where <i>xx</i> and <i>yy</i> are the time to set, the end being at most 24h00.
 	 * @param day The day where this period should be applied.
 	 * @throws IllegalArgumentException If the period isn't formatted as it should be.
 	 */
@@ -50,8 +59,8 @@ public class Period implements Serializable
 		this.endingMinute = Integer.parseInt(ending.substring(ending.indexOf("H") + 1));
 		if(!isValidPeriod())
 			throw new IllegalArgumentException("The dates aren't in a valid order");
-		this.calendar = Calendar.getInstance(Locale.getDefault());
 		this.decimalFormat = new DecimalFormat("00");
+		computeMinutes();
 	}
 
 	/**
@@ -62,17 +71,26 @@ public class Period implements Serializable
 	 */
 	public Period(Date start, Date end) throws IllegalArgumentException
 	{
-		this.calendar = Calendar.getInstance(Locale.getDefault());
-		this.calendar.setTime(start);
-		this.day = getDayFromCalendar(calendar.get(Calendar.DAY_OF_WEEK));
-		this.startingHour = calendar.get(Calendar.HOUR_OF_DAY);
-		this.startingMinute = calendar.get(Calendar.MINUTE);
-		this.calendar.setTime(end);
-		this.endingHour = calendar.get(Calendar.HOUR_OF_DAY);
-		this.endingMinute = calendar.get(Calendar.MINUTE);
+		ZonedDateTime startTime = start.toInstant().atZone(ZoneId.systemDefault());
+		ZonedDateTime endTime = end.toInstant().atZone(ZoneId.systemDefault());
+		this.day = MONDAY << (startTime.getDayOfWeek().getValue() - 1);
+		this.startingHour = startTime.getHour();
+		this.startingMinute = startTime.getMinute();
+		this.endingHour = endTime.getHour();
+		this.endingMinute = endTime.getMinute();
 		if(!isValidPeriod())
 			throw new IllegalArgumentException("The dates aren't in a valid order");
 		this.decimalFormat = new DecimalFormat("00");
+		computeMinutes();
+	}
+
+	/**
+	 * Used to compute the bounds of the period as minutes of the day.
+	 */
+	private void computeMinutes()
+	{
+		this.startMinuteOfDay = this.startingHour * 60 + this.startingMinute;
+		this.endMinuteOfDay = this.endingHour * 60 + this.endingMinute;
 	}
 
 	/**
@@ -92,8 +110,8 @@ public class Period implements Serializable
 			this.endingMinute = ois.readInt();
 			this.day = ois.readInt();
 		}
-		this.calendar = Calendar.getInstance(Locale.getDefault());
 		this.decimalFormat = new DecimalFormat("00");
+		computeMinutes();
 	}
 
 	/**
@@ -155,88 +173,20 @@ public class Period implements Serializable
 	 */
 	public boolean isInPeriod(Date date)
 	{
-		this.calendar.setTime(date);
-		int day = this.calendar.get(Calendar.DAY_OF_WEEK);
-		int hours = this.calendar.get(Calendar.HOUR_OF_DAY);
-		int minutes = this.calendar.get(Calendar.MINUTE);
-		if(!isCurrentDayCalendar(day))
-			return false;
-		if(this.startingHour == this.endingHour)
-		{
-			if(hours == this.startingHour)
-				if(minutes >= this.startingMinute && minutes < this.endingMinute)
-					return true;
-		}
-		else if(hours >= this.startingHour && hours <= this.endingHour)
-			if(hours == this.startingHour)
-			{
-				if(minutes >= this.startingMinute)
-					return true;
-			}
-			else if(hours == this.endingHour)
-			{
-				if(minutes <= this.endingMinute)
-					return true;
-			}
-			else
-				return true;
-		return false;
-	}
-
-	/**
-	 * Used to know if a day from {@link Calendar} is set.
-	 *
-	 * @param day The day to test.
-	 * @return True if set, false if not.
-	 */
-	private boolean isCurrentDayCalendar(int day)
-	{
-		switch(day)
-		{
-			case Calendar.MONDAY:
-				return isDaySet(MONDAY);
-			case Calendar.TUESDAY:
-				return isDaySet(TUESDAY);
-			case Calendar.WEDNESDAY:
-				return isDaySet(WEDNESDAY);
-			case Calendar.THURSDAY:
-				return isDaySet(THURSDAY);
-			case Calendar.FRIDAY:
-				return isDaySet(FRIDAY);
-			case Calendar.SATURDAY:
-				return isDaySet(SATURDAY);
-			case Calendar.SUNDAY:
-				return isDaySet(SUNDAY);
-		}
-		return false;
+		return contains(WeekClock.minuteOfWeek(date.getTime()));
 	}
 
 	/**
-	 * Used to know if a day from {@link Calendar} is set.
+	 * Used to know if a minute of the week is in this period.
 	 *
-	 * @param day The day to test.
-	 * @return True if set, false if not.
+	 * @param minuteOfWeek The minute of the week, as given by {@link WeekClock#minuteOfWeek(long)}.
+	 * @return true if the minute is in the period, false if not.
 	 */
-	private int getDayFromCalendar(int day)
+	public boolean contains(int minuteOfWeek)
 	{
-		switch(day)
-		{
-			case Calendar.MONDAY:
-				return MONDAY;
-			case Calendar.TUESDAY:
-				return TUESDAY;
-			case Calendar.WEDNESDAY:
-				return WEDNESDAY;
-			case Calendar.THURSDAY:
-				return THURSDAY;
-			case Calendar.FRIDAY:
-				return FRIDAY;
-			case Calendar.SATURDAY:
-				return SATURDAY;
-			case Calendar.SUNDAY:
-				return SUNDAY;
-		}
-		return 0;
+		int dayIndex = minuteOfWeek / WeekClock.MINUTES_PER_DAY;
+		int minuteOfDay = minuteOfWeek - dayIndex * WeekClock.MINUTES_PER_DAY;
+		return (this.day & (MONDAY << dayIndex)) != 0 && minuteOfDay >= this.startMinuteOfDay && minuteOfDay < this.endMinuteOfDay;
 	}
 
 	/**
@@ -247,7 +197,7 @@ public class Period implements Serializable
 	 */
 	public boolean isOverlapped(Period period)
 	{
-		return period != null && period != this && isDaysOverlapped(period) && (period.isInPeriod(getStartingDate()) || period.isInPeriod(getEndingDate()) || isInPeriod(period.getStartingDate()) || isInPeriod(period.getEndingDate()));
+		return period != null && period != this && isDaysOverlapped(period) && this.startMinuteOfDay < period.endMinuteOfDay && period.startMinuteOfDay < this.endMinuteOfDay;
 	}
 
 	/**
@@ -261,40 +211,21 @@ public class Period implements Serializable
 		return (period.getDay() & this.getDay()) != 0;
 	}
 
-	/**
-	 * Use to get the ending date of this period in the current day.
-	 *
-	 * @return The ending date.
-	 */
-	private Date getEndingDate()
-	{
-		Calendar calen = Calendar.getInstance(Locale.getDefault());
-		calen.setTime(new Date());
-		calen.set(Calendar.HOUR_OF_DAY, this.endingHour);
-		calen.set(Calendar.MINUTE, this.endingMinute);
-		return calen.getTime();
-	}
-
-	/**
-	 * Use to get the starting date of this period in the current day.
-	 *
-	 * @return The starting date.
-	 */
-	private Date getStartingDate()
+	@Override
+	public boolean equals(Object o)
 	{
-		Calendar calen = Calendar.getInstance(Locale.getDefault());
-		calen.setTime(new Date());
-		calen.set(Calendar.HOUR_OF_DAY, this.startingHour);
-		calen.set(Calendar.MINUTE, this.startingMinute);
-		return calen.getTime();
+		if(o == this)
+			return true;
+		if(!(o instanceof Period))
+			return false;
+		Period period = (Period) o;
+		return this.day == period.day && this.startMinuteOfDay == period.startMinuteOfDay && this.endMinuteOfDay == period.endMinuteOfDay;
 	}
 
 	@Override
-	public boolean equals(Object o)
+	public int hashCode()
 	{
-		if(o instanceof Period)
-			return isSame(o.toString());
-		return o == this;
+		return (this.day * 31 + this.startMinuteOfDay) * 31 + this.endMinuteOfDay;
 	}
 
 	@Override
@@ -311,7 +242,18 @@ public class Period implements Serializable
 	 */
 	public boolean isSame(String name)
 	{
-		return this.toString().replaceAll(" ", "").equalsIgnoreCase(name.replaceAll(" ", ""));
+		return getNameKey(this.toString()).equals(getNameKey(name));
+	}
+
+	/**
+	 * Used to get the key of the name of a period, ignoring the spaces and the case.
+	 *
+	 * @param name The period as string.
+	 * @return The key.
+	 */
+	public static String getNameKey(String name)
+	{
+		return name.replace(" ", "").toUpperCase();
 	}
 
 	/**
@@ -336,12 +278,17 @@ public class Period implements Serializable
 	}
 
 	/**
-	 * Used to know if the period is valid.
+	 * Used to know if the period is valid: both times are in the day, the end being at most 24h00, and the start is
+	 * before the end.
 	 *
 	 * @return True if valid, false if not.
 	 */
 	public boolean isValidPeriod()
 	{
+		if(startingHour < 0 || startingHour > 23 || startingMinute < 0 || startingMinute > 59 || endingHour < 0 || endingMinute < 0 || endingMinute > 59)
+			return false;
+		if(endingHour > 24 || (endingHour == 24 && endingMinute != 0))
+			return false;
 		if(endingHour < startingHour)
 			return false;
 		if(startingHour == endingHour)
@@ -405,10 +352,30 @@ public class Period implements Serializable
 	/**
 	 * Used to get the duration of the period.
 	 *
-	 * @return The duration in seconds.
+	 * @return The duration in milliseconds.
 	 */
 	public long getDuration()
 	{
-		return getEndingDate().getTime() - getStartingDate().getTime();
+		return (this.endMinuteOfDay - this.startMinuteOfDay) * 60000L;
+	}
+
+	/**
+	 * Used to get the start of the period, included.
+	 *
+	 * @return The minute of the day.
+	 */
+	public int getStartMinuteOfDay()
+	{
+		return startMinuteOfDay;
+	}
+
+	/**
+	 * Used to get the end of the period, excluded.
+	 *
+	 * @return The minute of the day.
+	 */
+	public int getEndMinuteOfDay()
+	{
+		return endMinuteOfDay;
 	}
 }
@@ -0,0 +1,199 @@
+package fr.mrcraftcod.polytech.DI.RFID.objects;
+
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
+import java.util.Arrays;
+
+/**
+ * Index of the periods of a group over the minutes of the week.
+ * <p>
+ * Each day of a period is stored as an interval of minutes of the week. As the periods of a group never overlap, the
+ * intervals are kept sorted by their start in plain arrays, their ends being then sorted too. Finding the period of a
+ * minute or an overlapping interval is a binary search, without any allocation.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class PeriodIndex
+{
+	private int[] starts;
+	private int[] ends;
+	private Period[] periods;
+	private int size;
+
+	/**
+	 * Constructor.
+	 */
+	public PeriodIndex()
+	{
+		this.starts = new int[16];
+		this.ends = new int[16];
+		this.periods = new Period[16];
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param index The index to copy.
+	 */
+	public PeriodIndex(PeriodIndex index)
+	{
+		this.starts = Arrays.copyOf(index.starts, index.starts.length);
+		this.ends = Arrays.copyOf(index.ends, index.ends.length);
+		this.periods = Arrays.copyOf(index.periods, index.periods.length);
+		this.size = index.size;
+	}
+
+	/**
+	 * Used to know if a period overlaps one of the periods of the index.
+	 *
+	 * @param period The period to test.
+	 * @return True if overlapping, false if not.
+	 */
+	public boolean overlaps(Period period)
+	{
+		for(int dayIndex = 0; dayIndex < 7; dayIndex++)
+			if(period.isDaySet(Period.MONDAY << dayIndex))
+			{
+				int offset = dayIndex * WeekClock.MINUTES_PER_DAY;
+				int index = lastStartingBefore(offset + period.getEndMinuteOfDay());
+				if(index >= 0 && ends[index] > offset + period.getStartMinuteOfDay() && periods[index] != period)
+					return true;
+			}
+		return false;
+	}
+
+	/**
+	 * Used to add a period. The days overlapping a period already in the index are ignored.
+	 *
+	 * @param period The period to add.
+	 * @return True if every day was added, false if some were overlapping.
+	 */
+	public boolean add(Period period)
+	{
+		boolean added = true;
+		for(int dayIndex = 0; dayIndex < 7; dayIndex++)
+			if(period.isDaySet(Period.MONDAY << dayIndex))
+			{
+				int offset = dayIndex * WeekClock.MINUTES_PER_DAY;
+				int start = offset + period.getStartMinuteOfDay();
+				int end = offset + period.getEndMinuteOfDay();
+				int index = lastStartingBefore(end);
+				if(index >= 0 && ends[index] > start)
+				{
+					added = false;
+					continue;
+				}
+				insert(index + 1, start, end, period);
+			}
+		return added;
+	}
+
+	/**
+	 * Used to remove every period.
+	 */
+	public void clear()
+	{
+		Arrays.fill(periods, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Used to get the period containing a minute of the week.
+	 *
+	 * @param minuteOfWeek The minute of the week, as given by {@link WeekClock#minuteOfWeek(long)}.
+	 * @return The period or null if none.
+	 */
+	public Period get(int minuteOfWeek)
+	{
+		int index = lastStartingBefore(minuteOfWeek + 1);
+		return index >= 0 && ends[index] > minuteOfWeek ? periods[index] : null;
+	}
+
+	/**
+	 * Used to get how many intervals are in the index.
+	 *
+	 * @return The number of intervals.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Used to get the start of an interval, the intervals being sorted by their start.
+	 *
+	 * @param index The index of the interval.
+	 * @return The minute of the week, included.
+	 */
+	public int getStart(int index)
+	{
+		return starts[index];
+	}
+
+	/**
+	 * Used to get the end of an interval.
+	 *
+	 * @param index The index of the interval.
+	 * @return The minute of the week, excluded.
+	 */
+	public int getEnd(int index)
+	{
+		return ends[index];
+	}
+
+	/**
+	 * Used to get the period of an interval.
+	 *
+	 * @param index The index of the interval.
+	 * @return The period.
+	 */
+	public Period getPeriod(int index)
+	{
+		return periods[index];
+	}
+
+	/**
+	 * Used to find the last interval starting strictly before a minute.
+	 *
+	 * @param minute The minute of the week.
+	 * @return The index of the interval, -1 if none.
+	 */
+	private int lastStartingBefore(int minute)
+	{
+		int low = 0;
+		int high = size - 1;
+		while(low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			if(starts[middle] < minute)
+				low = middle + 1;
+			else
+				high = middle - 1;
+		}
+		return high;
+	}
+
+	/**
+	 * Used to insert an interval.
+	 *
+	 * @param index The index where to insert.
+	 * @param start The start of the interval, included.
+	 * @param end The end of the interval, excluded.
+	 * @param period The period of the interval.
+	 */
+	private void insert(int index, int start, int end, Period period)
+	{
+		if(size == starts.length)
+		{
+			starts = Arrays.copyOf(starts, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+			periods = Arrays.copyOf(periods, size * 2);
+		}
+		System.arraycopy(starts, index, starts, index + 1, size - index);
+		System.arraycopy(ends, index, ends, index + 1, size - index);
+		System.arraycopy(periods, index, periods, index + 1, size - index);
+		starts[index] = start;
+		ends[index] = end;
+		periods[index] = period;
+		size++;
+	}
+}
@@ -0,0 +1,345 @@
+package fr.mrcraftcod.polytech.DI.RFID.objects;
+
+import fr.mrcraftcod.polytech.DI.RFID.utils.ScheduleExceptions;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timeline of the periods of all the groups over the minutes of the week.
+ * <p>
+ * The starts and ends of every period of every group are merged into sorted boundaries cutting the week into segments.
+ * The periods active during each segment are computed when the timeline is built, so knowing the periods active at a
+ * minute or the next transition is a binary search on the boundaries. The queries read an immutable snapshot and never
+ * lock.
+ * <p>
+ * The timeline is updated one group at a time when its periods are modified. The exceptions of the
+ * {@link ScheduleExceptions} are applied when querying an instant.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class ScheduleTimeline
+{
+	private final ArrayList<Entry> entries;
+	private final ConcurrentHashMap<String, Group> groupsByName;
+	private volatile Segments segments;
+
+	/**
+	 * Constructor.
+	 */
+	public ScheduleTimeline()
+	{
+		this.entries = new ArrayList<>();
+		this.groupsByName = new ConcurrentHashMap<>();
+		this.segments = new Segments(new int[0], new Entry[0][]);
+	}
+
+	/**
+	 * Used to build the timeline from all the groups.
+	 *
+	 * @param groups The groups.
+	 */
+	public void rebuild(Collection<Group> groups)
+	{
+		ArrayList<Group> groupList = new ArrayList<>(groups);
+		ArrayList<List<Entry>> groupEntries = new ArrayList<>(groupList.size());
+		for(Group group : groupList)
+			groupEntries.add(getEntries(group));
+		synchronized(this)
+		{
+			entries.clear();
+			groupsByName.clear();
+			for(int i = 0; i < groupList.size(); i++)
+				addEntries(groupList.get(i), groupEntries.get(i));
+			publish();
+		}
+	}
+
+	/**
+	 * Used to update the periods of a group, adding it if it isn't in the timeline.
+	 *
+	 * @param group The group.
+	 */
+	public void update(Group group)
+	{
+		List<Entry> groupEntries = getEntries(group);
+		synchronized(this)
+		{
+			removeEntries(group);
+			addEntries(group, groupEntries);
+			publish();
+		}
+	}
+
+	/**
+	 * Used to remove a group.
+	 *
+	 * @param group The group.
+	 */
+	public synchronized void remove(Group group)
+	{
+		removeEntries(group);
+		groupsByName.remove(group.getName(), group);
+		publish();
+	}
+
+	/**
+	 * Used to get the entries of the periods of a group, from its {@link PeriodIndex} so the days ignored by the group
+	 * because they overlap another period are left out too. This is done without holding the lock of the timeline, as
+	 * the group calls the timeline while holding its own.
+	 *
+	 * @param group The group.
+	 * @return The entries.
+	 */
+	private static List<Entry> getEntries(Group group)
+	{
+		PeriodIndex periodIndex = group.getPeriodIndex();
+		ArrayList<Entry> groupEntries = new ArrayList<>(periodIndex.size());
+		for(int i = 0; i < periodIndex.size(); i++)
+			groupEntries.add(new Entry(group, periodIndex.getPeriod(i), periodIndex.getStart(i), periodIndex.getEnd(i)));
+		return groupEntries;
+	}
+
+	/**
+	 * Used to add the periods of a group to the sorted entries.
+	 *
+	 * @param group The group.
+	 * @param groupEntries The entries of its periods.
+	 */
+	private void addEntries(Group group, List<Entry> groupEntries)
+	{
+		groupsByName.put(group.getName(), group);
+		for(Entry entry : groupEntries)
+		{
+			int index = Collections.binarySearch(entries, entry, Comparator.comparingInt(Entry::getStart));
+			entries.add(index < 0 ? -index - 1 : index, entry);
+		}
+	}
+
+	/**
+	 * Used to remove the periods of a group from the entries.
+	 *
+	 * @param group The group.
+	 */
+	private void removeEntries(Group group)
+	{
+		entries.removeIf(entry -> entry.group == group);
+	}
+
+	/**
+	 * Used to compute the segments from the entries and publish them for the queries.
+	 */
+	private void publish()
+	{
+		int[] points = new int[entries.size() * 2];
+		int count = 0;
+		for(Entry entry : entries)
+		{
+			points[count++] = entry.start;
+			points[count++] = entry.end;
+		}
+		Arrays.sort(points, 0, count);
+		int size = 0;
+		for(int i = 0; i < count; i++)
+			if(size == 0 || points[size - 1] != points[i])
+				points[size++] = points[i];
+		int[] boundaries = Arrays.copyOf(points, size);
+		Entry[][] active = new Entry[size][];
+		ArrayList<Entry> opened = new ArrayList<>();
+		int next = 0;
+		for(int i = 0; i < size; i++)
+		{
+			int boundary = boundaries[i];
+			opened.removeIf(entry -> entry.end <= boundary);
+			while(next < entries.size() && entries.get(next).start <= boundary)
+				opened.add(entries.get(next++));
+			active[i] = opened.toArray(new Entry[0]);
+		}
+		segments = new Segments(boundaries, active);
+	}
+
+	/**
+	 * Used to get the weekly periods active at a minute of the week, without the exceptions.
+	 *
+	 * @param minuteOfWeek The minute of the week.
+	 * @return The active periods.
+	 */
+	public List<Entry> getActive(int minuteOfWeek)
+	{
+		Segments current = segments;
+		int index = current.lastBoundaryAtOrBefore(minuteOfWeek);
+		return index < 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(current.active[index]));
+	}
+
+	/**
+	 * Used to get the periods active at an instant, taking the exceptions of its day into account.
+	 *
+	 * @param epochMillis The instant, in milliseconds since the epoch.
+	 * @return The active periods.
+	 */
+	public List<Entry> getActiveAt(long epochMillis)
+	{
+		int minuteOfWeek = WeekClock.minuteOfWeek(epochMillis);
+		List<Entry> active = getActive(minuteOfWeek);
+		ScheduleExceptions.Day day = Utils.scheduleExceptions == null ? null : Utils.scheduleExceptions.getDay(WeekClock.epochDay(epochMillis));
+		if(day == null)
+			return active;
+		ArrayList<Entry> result = new ArrayList<>();
+		for(Entry entry : active)
+			if(!day.isCancelled(entry.group.getName()) && day.getSession(entry.group.getName(), minuteOfWeek) == null)
+				result.add(entry);
+		int offset = minuteOfWeek - minuteOfWeek % WeekClock.MINUTES_PER_DAY;
+		for(Map.Entry<String, Period> session : day.getSessions(minuteOfWeek).entrySet())
+		{
+			Group group = groupsByName.get(session.getKey());
+			if(group != null)
+				result.add(new Entry(group, session.getValue(), offset + session.getValue().getStartMinuteOfDay(), offset + session.getValue().getEndMinuteOfDay()));
+		}
+		return result;
+	}
+
+	/**
+	 * Used to get in how many minutes a weekly period will start or end, without the exceptions.
+	 *
+	 * @param minuteOfWeek The current minute of the week.
+	 * @return The number of minutes, strictly positive, -1 if there is no period.
+	 */
+	public int getMinutesToNextTransition(int minuteOfWeek)
+	{
+		Segments current = segments;
+		if(current.boundaries.length == 0)
+			return -1;
+		int index = current.lastBoundaryAtOrBefore(minuteOfWeek) + 1;
+		return index < current.boundaries.length ? current.boundaries[index] - minuteOfWeek : current.boundaries[0] + WeekClock.MINUTES_PER_WEEK - minuteOfWeek;
+	}
+
+	/**
+	 * Used to get in how many minutes a period will start or end, taking the exceptions into account.
+	 *
+	 * @param epochMillis The current instant, in milliseconds since the epoch.
+	 * @return The number of minutes, strictly positive, -1 if there is no period.
+	 */
+	public int getMinutesToNextTransitionAt(long epochMillis)
+	{
+		int minuteOfWeek = WeekClock.minuteOfWeek(epochMillis);
+		int minutes = getMinutesToNextTransition(minuteOfWeek);
+		if(Utils.scheduleExceptions == null || Utils.scheduleExceptions.isEmpty())
+			return minutes;
+		// The exceptions change at midnight.
+		int toMidnight = WeekClock.MINUTES_PER_DAY - minuteOfWeek % WeekClock.MINUTES_PER_DAY;
+		minutes = minutes < 0 ? toMidnight : Math.min(minutes, toMidnight);
+		ScheduleExceptions.Day day = Utils.scheduleExceptions.getDay(WeekClock.epochDay(epochMillis));
+		int toSession = day == null ? -1 : day.getMinutesToNextBoundary(minuteOfWeek);
+		return toSession < 0 ? minutes : Math.min(minutes, toSession);
+	}
+
+	/**
+	 * A period of a group on one day of the week.
+	 */
+	public static class Entry
+	{
+		private final Group group;
+		private final Period period;
+		private final int start;
+		private final int end;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param group The group.
+		 * @param period The period.
+		 * @param start The start, as a minute of the week, included.
+		 * @param end The end, as a minute of the week, excluded.
+		 */
+		private Entry(Group group, Period period, int start, int end)
+		{
+			this.group = group;
+			this.period = period;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Used to get the group.
+		 *
+		 * @return The group.
+		 */
+		public Group getGroup()
+		{
+			return group;
+		}
+
+		/**
+		 * Used to get the period.
+		 *
+		 * @return The period.
+		 */
+		public Period getPeriod()
+		{
+			return period;
+		}
+
+		/**
+		 * Used to get the start.
+		 *
+		 * @return The minute of the week, included.
+		 */
+		public int getStart()
+		{
+			return start;
+		}
+
+		/**
+		 * Used to get the end.
+		 *
+		 * @return The minute of the week, excluded.
+		 */
+		public int getEnd()
+		{
+			return end;
+		}
+	}
+
+	/**
+	 * The boundaries of the segments and the periods active in each of them.
+	 */
+	private static class Segments
+	{
+		private final int[] boundaries;
+		private final Entry[][] active;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param boundaries The sorted boundaries, the segment i going from the boundary i to the boundary i + 1.
+		 * @param active The periods active in each segment.
+		 */
+		private Segments(int[] boundaries, Entry[][] active)
+		{
+			this.boundaries = boundaries;
+			this.active = active;
+		}
+
+		/**
+		 * Used to find the segment containing a minute.
+		 *
+		 * @param minuteOfWeek The minute of the week.
+		 * @return The index of the last boundary at or before the minute, -1 if none.
+		 */
+		private int lastBoundaryAtOrBefore(int minuteOfWeek)
+		{
+			int low = 0;
+			int high = boundaries.length - 1;
+			while(low <= high)
+			{
+				int middle = (low + high) >>> 1;
+				if(boundaries[middle] <= minuteOfWeek)
+					low = middle + 1;
+				else
+					high = middle - 1;
+			}
+			return high;
+		}
+	}
+}
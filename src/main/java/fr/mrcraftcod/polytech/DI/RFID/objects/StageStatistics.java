@@ -0,0 +1,83 @@
+package fr.mrcraftcod.polytech.DI.RFID.objects;
+
+/**
+ * Latency statistics of a processing stage.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class StageStatistics
+{
+	private final String name;
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name The name of the stage.
+	 */
+	public StageStatistics(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Used to record the duration of one pass in the stage.
+	 *
+	 * @param nanos The duration in nanoseconds.
+	 */
+	public synchronized void record(long nanos)
+	{
+		count++;
+		totalNanos += nanos;
+		if(nanos > maxNanos)
+			maxNanos = nanos;
+	}
+
+	/**
+	 * Used to get the name of the stage.
+	 *
+	 * @return The name.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Used to get how many passes were recorded.
+	 *
+	 * @return The count.
+	 */
+	public synchronized long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Used to get the average duration of a pass.
+	 *
+	 * @return The average in nanoseconds, 0 if nothing was recorded.
+	 */
+	public synchronized long getAverageNanos()
+	{
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	/**
+	 * Used to get the longest duration of a pass.
+	 *
+	 * @return The maximum in nanoseconds.
+	 */
+	public synchronized long getMaxNanos()
+	{
+		return maxNanos;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return name + "[n=" + count + ", avg=" + (count == 0 ? 0 : totalNanos / count / 1000) + "us, max=" + maxNanos / 1000 + "us]";
+	}
+}
@@ -5,9 +5,14 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.text.CollationKey;
+import java.text.Collator;
 
 /**
  * Class representing a student.
+ * <p>
+ * A student is immutable and is identified by his name, case insensitive. The keys used for comparisons are computed
+ * once when the object is created.
  *
  * @author COLEAU Victor, COUCHOUD Thomas
  */
@@ -15,9 +20,15 @@ public class Student implements Serializable, Comparable<Student>
 {
 	private static final long serialVersionUID = -943925991658771299L;
 	private static final int SERIALIZATION_VERSION = 1;
+	private static final Collator COLLATOR = Collator.getInstance();
 	private String surname;
 	private String firstname;
 	private String uid;
+	private transient String rawUid;
+	private transient String uidKey;
+	private transient String name;
+	private transient String nameKey;
+	private transient CollationKey collationKey;
 
 	/**
 	 * Constructor.
@@ -31,6 +42,33 @@ public class Student implements Serializable, Comparable<Student>
 		this.uid = uid;
 		this.surname = Utils.capitalize(surname.toLowerCase().trim());
 		this.firstname = Utils.capitalize(firstname.toLowerCase().trim());
+		computeKeys();
+	}
+
+	/**
+	 * Used to normalise a card UID, removing the tirets and ignoring the case.
+	 *
+	 * @param uid The UID to normalise.
+	 * @return The normalised UID.
+	 */
+	public static String normaliseUID(String uid)
+	{
+		return uid == null ? "" : uid.replace("-", "").toUpperCase();
+	}
+
+	/**
+	 * Used to compute the keys used to compare students.
+	 */
+	private void computeKeys()
+	{
+		this.rawUid = this.uid == null ? "" : this.uid.replace("-", "");
+		this.uidKey = normaliseUID(this.uid);
+		this.name = (this.surname == null ? "" : this.surname.toUpperCase()) + " " + (this.firstname == null ? "" : this.firstname);
+		this.nameKey = this.name.toUpperCase();
+		synchronized(COLLATOR)
+		{
+			this.collationKey = COLLATOR.getCollationKey(this.name);
+		}
 	}
 
 	/**
@@ -48,6 +86,7 @@ public class Student implements Serializable, Comparable<Student>
 			this.firstname = ois.readUTF();
 			this.surname = ois.readUTF();
 		}
+		computeKeys();
 	}
 
 	/**
@@ -71,7 +110,17 @@ public class Student implements Serializable, Comparable<Student>
 	 */
 	public String getName()
 	{
-		return getLastname().toUpperCase() + " " + getFirstName();
+		return this.name;
+	}
+
+	/**
+	 * Used to get the key identifying the student, his name in upper case.
+	 *
+	 * @return The name key.
+	 */
+	public String getNameKey()
+	{
+		return this.nameKey;
 	}
 
 	/**
@@ -81,7 +130,18 @@ public class Student implements Serializable, Comparable<Student>
 	 */
 	public String getRawUid()
 	{
-		return this.uid.replace("-", "");
+		return this.rawUid;
+	}
+
+	/**
+	 * Used to get the key identifying the student's card, his UID without any tirets and in upper case.
+	 *
+	 * @return The UID key.
+	 * @see #normaliseUID(String)
+	 */
+	public String getUidKey()
+	{
+		return this.uidKey;
 	}
 
 	/**
@@ -97,14 +157,14 @@ public class Student implements Serializable, Comparable<Student>
 	@Override
 	public int hashCode()
 	{
-		return this.uid.hashCode();
+		return this.nameKey.hashCode();
 	}
 
 	@Override
 	public boolean equals(Object o)
 	{
 		if(o instanceof Student)
-			return isSameName(((Student) o).getName());
+			return this.nameKey.equals(((Student) o).nameKey);
 		return o == this;
 	}
 
@@ -132,7 +192,7 @@ public class Student implements Serializable, Comparable<Student>
 	 */
 	public boolean isSameName(String name)
 	{
-		return this.getName().equalsIgnoreCase(name);
+		return this.name.equalsIgnoreCase(name);
 	}
 
 	/**
@@ -158,6 +218,9 @@ public class Student implements Serializable, Comparable<Student>
 	@Override
 	public int compareTo(Student o)
 	{
-		return o == null ? 0 : this.getName().compareTo(o.getName());
+		if(o == null)
+			return 0;
+		int result = this.collationKey.compareTo(o.collationKey);
+		return result != 0 ? result : this.nameKey.compareTo(o.nameKey);
 	}
 }
@@ -0,0 +1,108 @@
+package fr.mrcraftcod.polytech.DI.RFID.objects;
+
+/**
+ * Class representing an action of a card on a reader, as given to the tap pipeline.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class TapEvent
+{
+	/**
+	 * The kinds of event.
+	 */
+	public enum Type
+	{
+		CARD_ADDED, CARD_REMOVED
+	}
+
+	private final Type type;
+	private final String readerName;
+	private final String uid;
+	private final long time;
+	private final long creationNanoTime;
+
+	/**
+	 * Constructor, for an event happening now.
+	 *
+	 * @param type The kind of event.
+	 * @param readerName The name of the reader where the event happened.
+	 * @param uid The UID of the card, null if the card was removed.
+	 */
+	public TapEvent(Type type, String readerName, String uid)
+	{
+		this(type, readerName, uid, System.currentTimeMillis());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type The kind of event.
+	 * @param readerName The name of the reader where the event happened.
+	 * @param uid The UID of the card, null if the card was removed.
+	 * @param time When the event happened, in milliseconds since epoch.
+	 */
+	public TapEvent(Type type, String readerName, String uid, long time)
+	{
+		this.type = type;
+		this.readerName = readerName;
+		this.uid = uid;
+		this.time = time;
+		this.creationNanoTime = System.nanoTime();
+	}
+
+	/**
+	 * Used to get the kind of event.
+	 *
+	 * @return The type.
+	 */
+	public Type getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Used to get the name of the reader where the event happened.
+	 *
+	 * @return The reader name.
+	 */
+	public String getReaderName()
+	{
+		return readerName;
+	}
+
+	/**
+	 * Used to get the UID of the card.
+	 *
+	 * @return The UID, null if the card was removed.
+	 */
+	public String getUid()
+	{
+		return uid;
+	}
+
+	/**
+	 * Used to get when the event happened.
+	 *
+	 * @return The time in milliseconds since epoch.
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+
+	/**
+	 * Used to get when this object was created, to measure latencies.
+	 *
+	 * @return The value of {@link System#nanoTime()} at creation.
+	 */
+	public long getCreationNanoTime()
+	{
+		return creationNanoTime;
+	}
+
+	@Override
+	public String toString()
+	{
+		return type + "[" + readerName + ", " + uid + "]";
+	}
+}
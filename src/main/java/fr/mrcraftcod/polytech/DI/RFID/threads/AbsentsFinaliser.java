@@ -0,0 +1,380 @@
+package fr.mrcraftcod.polytech.DI.RFID.threads;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+
+/**
+ * Thread writing the absents of the periods that ended.
+ * <p>
+ * When a period ends, the group only gives a copy of its students and of the checked ones, so opening the next period
+ * never waits for the disk. The thread takes every ended period waiting at once, groups the absences by file and writes
+ * each file only once: the previous total is replaced by the new lines and the new total. The file is replaced through
+ * a temporary file, so a crash leaves either the old or the new content. Once the absents of a period are written, the
+ * callback given with it is called, so the {@link fr.mrcraftcod.polytech.DI.RFID.utils.CheckJournal} only forgets the
+ * period then.
+ * <p>
+ * An absence can also be removed afterwards, when a check of its period is imported later.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class AbsentsFinaliser implements Runnable
+{
+	private static final long STOP_TIMEOUT = 10000;
+	private static final String TOTAL_PREFIX = "Total";
+	private final LinkedBlockingQueue<Closure> closures;
+	private Thread thread;
+	private long submitted;
+	private long written;
+
+	/**
+	 * Constructor.
+	 */
+	public AbsentsFinaliser()
+	{
+		this.closures = new LinkedBlockingQueue<>();
+	}
+
+	/**
+	 * Used to start the thread.
+	 */
+	public synchronized void start()
+	{
+		if(thread != null)
+			return;
+		thread = Threads.start("AbsentsFinaliser", false, this);
+	}
+
+	/**
+	 * Used to stop the thread. The ended periods still waiting are written before returning.
+	 */
+	public void stop()
+	{
+		Thread stopped;
+		synchronized(this)
+		{
+			stopped = thread;
+			thread = null;
+		}
+		if(stopped == null)
+			return;
+		stopped.interrupt();
+		try
+		{
+			stopped.join(STOP_TIMEOUT);
+		}
+		catch(InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finalise(null);
+	}
+
+	/**
+	 * Used to add a period that ended. The lists are copied so the group can be modified right away.
+	 *
+	 * @param group The group of the period.
+	 * @param period The period that ended.
+	 * @param date The date when it ended.
+	 * @param students The students that needed to check.
+	 * @param checkedStudents The students that have checked.
+	 * @param onWritten Called from the thread once the absents are written, may be null.
+	 */
+	public void submit(Group group, Period period, Date date, Collection<Student> students, Collection<Student> checkedStudents, Runnable onWritten)
+	{
+		Closure closure = new Closure(group.getName(), period, date, new ArrayList<>(students), new HashSet<>(checkedStudents), onWritten);
+		synchronized(closures)
+		{
+			submitted++;
+			closures.add(closure);
+		}
+	}
+
+	/**
+	 * Used to remove the absence of a student during a period, for example when a check of this period is imported
+	 * later. The periods that ended before are written first.
+	 *
+	 * @param student The student.
+	 * @param period The period.
+	 * @param date A date during the period.
+	 * @return True if the absence was removed, false if there was none.
+	 */
+	public boolean removeAbsence(Student student, Period period, Date date)
+	{
+		finalise(null);
+		synchronized(closures)
+		{
+			long deadline = System.currentTimeMillis() + STOP_TIMEOUT;
+			long target = submitted;
+			try
+			{
+				// A period may have been taken from the queue by the thread and not written yet.
+				while(written < target && System.currentTimeMillis() < deadline)
+					closures.wait(Math.max(1, deadline - System.currentTimeMillis()));
+			}
+			catch(InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+			}
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime(date);
+			File file = getFile(student, calendar);
+			if(!file.exists())
+				return false;
+			try
+			{
+				List<String> lines = Files.readAllLines(file.toPath(), Charset.defaultCharset());
+				String prefix = formatDate(calendar) + ";" + student.getName() + ";" + period.getRawTimeInterval() + ";";
+				int index = -1;
+				int totalIndex = -1;
+				for(int i = 0; i < lines.size(); i++)
+					if(index < 0 && lines.get(i).startsWith(prefix))
+						index = i;
+					else if(lines.get(i).startsWith(TOTAL_PREFIX))
+						totalIndex = i;
+				if(index < 0)
+					return false;
+				String[] vals = lines.get(index).split(";");
+				long duration = Utils.stringToDuration(vals[vals.length - 1]);
+				if(totalIndex >= 0)
+				{
+					vals = lines.get(totalIndex).split(";");
+					lines.set(totalIndex, TOTAL_PREFIX + ";" + Utils.durationToString(Math.max(0, Utils.stringToDuration(vals[vals.length - 1]) - duration)));
+				}
+				lines.remove(index);
+				StringBuilder content = new StringBuilder();
+				for(String line : lines)
+					content.append(line).append(System.lineSeparator());
+				replace(file, content.toString());
+				Utils.logger.log(Level.INFO, "Removed absence of " + student + " for " + period.getRawTimeInterval() + " of " + formatDate(calendar));
+				return true;
+			}
+			catch(IOException exception)
+			{
+				Utils.logger.log(Level.SEVERE, "Cannot remove absence from " + file.getAbsolutePath(), exception);
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		while(!Thread.interrupted())
+		{
+			Closure closure;
+			try
+			{
+				closure = closures.take();
+			}
+			catch(InterruptedException exception)
+			{
+				break;
+			}
+			finalise(closure);
+		}
+		finalise(null);
+	}
+
+	/**
+	 * Used to write the absents of every period waiting.
+	 *
+	 * @param first A period already taken from the queue, may be null.
+	 */
+	private void finalise(Closure first)
+	{
+		ArrayList<Closure> pending = new ArrayList<>();
+		if(first != null)
+			pending.add(first);
+		closures.drainTo(pending);
+		if(pending.isEmpty())
+			return;
+		synchronized(closures)
+		{
+			write(pending);
+			written += pending.size();
+			closures.notifyAll();
+		}
+		// Outside of the lock, as the callbacks may wait for a thread submitting a period.
+		for(Closure closure : pending)
+			if(closure.onWritten != null)
+				try
+				{
+					closure.onWritten.run();
+				}
+				catch(Exception exception)
+				{
+					Utils.logger.log(Level.SEVERE, "Error after writing the absents of group " + closure.groupName, exception);
+				}
+	}
+
+	/**
+	 * Used to write the absents of some periods, each file being written only once.
+	 *
+	 * @param pending The periods that ended.
+	 */
+	private static void write(List<Closure> pending)
+	{
+		Calendar calendar = Calendar.getInstance();
+		LinkedHashMap<File, AbsentsFile> files = new LinkedHashMap<>();
+		int absents = 0;
+		for(Closure closure : pending)
+		{
+			calendar.setTime(closure.date);
+			String date = formatDate(calendar);
+			for(Student student : closure.students)
+				if(student != null && !closure.checkedStudents.contains(student))
+				{
+					Utils.logger.log(Level.INFO, student + " is missing for " + closure.period.getRawTimeInterval() + " of group " + closure.groupName);
+					File file = getFile(student, calendar);
+					AbsentsFile absentsFile = files.get(file);
+					if(absentsFile == null)
+						files.put(file, absentsFile = new AbsentsFile());
+					absentsFile.lines.append(date).append(";").append(student.getName()).append(";").append(closure.period.getRawTimeInterval()).append(";").append(closure.period.getDurationString()).append(System.lineSeparator());
+					absentsFile.duration += closure.period.getDuration();
+					absents++;
+				}
+		}
+		long start = System.nanoTime();
+		for(Map.Entry<File, AbsentsFile> entry : files.entrySet())
+			try
+			{
+				append(entry.getKey(), entry.getValue());
+			}
+			catch(IOException exception)
+			{
+				Utils.logger.log(Level.SEVERE, "Cannot write absents file " + entry.getKey().getAbsolutePath(), exception);
+			}
+		Utils.logger.log(Level.INFO, String.format("Wrote %d absents of %d periods into %d files in %.1fms", absents, pending.size(), files.size(), (System.nanoTime() - start) / 1e6));
+	}
+
+	/**
+	 * Used to get the file of the absences of a student during a month.
+	 *
+	 * @param student The student.
+	 * @param calendar The calendar set to a date of the month.
+	 * @return The file.
+	 */
+	private static File getFile(Student student, Calendar calendar)
+	{
+		return new File(Utils.baseFile, "Absents" + File.separator + "absent_" + student.getName() + "_" + calendar.get(Calendar.YEAR) + "_" + (calendar.get(Calendar.MONTH) + 1) + ".csv");
+	}
+
+	/**
+	 * Used to format a date as written in the absents files.
+	 *
+	 * @param calendar The calendar set to the date.
+	 * @return The date formatted as dd/MM/yyyy.
+	 */
+	private static String formatDate(Calendar calendar)
+	{
+		return String.format("%02d/%02d/%d", calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.YEAR));
+	}
+
+	/**
+	 * Used to replace the content of a file. The new content is written to a temporary file synced to the disk, which
+	 * then replaces the file, so a crash leaves either the old or the new content.
+	 *
+	 * @param file The file.
+	 * @param content The new content.
+	 * @throws IOException If the file can't be written.
+	 */
+	private static void replace(File file, String content) throws IOException
+	{
+		File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+		try(FileOutputStream fos = new FileOutputStream(temp))
+		{
+			fos.write(content.getBytes(Charset.defaultCharset()));
+			fos.getFD().sync();
+		}
+		catch(IOException exception)
+		{
+			temp.delete();
+			throw exception;
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Used to append absences to a file and update its total.
+	 *
+	 * @param file The file.
+	 * @param absentsFile The absences to append.
+	 * @throws IOException If the file can't be written.
+	 */
+	private static void append(File file, AbsentsFile absentsFile) throws IOException
+	{
+		file.getParentFile().mkdirs();
+		String content = file.exists() ? new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset()) : "";
+		int end = content.length();
+		while(end > 0 && (content.charAt(end - 1) == '\n' || content.charAt(end - 1) == '\r'))
+			end--;
+		int lastLineStart = Math.max(content.lastIndexOf('\n', end - 1), content.lastIndexOf('\r', end - 1)) + 1;
+		long duration = absentsFile.duration;
+		StringBuilder newContent = new StringBuilder();
+		String last = content.substring(lastLineStart, end).trim();
+		if(last.startsWith(TOTAL_PREFIX))
+		{
+			String[] vals = last.split(";");
+			duration += Utils.stringToDuration(vals[vals.length - 1]);
+			newContent.append(content, 0, lastLineStart);
+		}
+		else if(end > 0)
+			newContent.append(content, 0, end).append(System.lineSeparator());
+		newContent.append(absentsFile.lines).append(TOTAL_PREFIX).append(";").append(Utils.durationToString(duration)).append(System.lineSeparator());
+		replace(file, newContent.toString());
+	}
+
+	/**
+	 * A period that ended, with the copy of the students of its group.
+	 */
+	private static class Closure
+	{
+		private final String groupName;
+		private final Period period;
+		private final Date date;
+		private final ArrayList<Student> students;
+		private final HashSet<Student> checkedStudents;
+		private final Runnable onWritten;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param groupName The name of the group.
+		 * @param period The period that ended.
+		 * @param date The date when it ended.
+		 * @param students The students that needed to check.
+		 * @param checkedStudents The students that have checked.
+		 * @param onWritten Called once the absents are written, may be null.
+		 */
+		private Closure(String groupName, Period period, Date date, ArrayList<Student> students, HashSet<Student> checkedStudents, Runnable onWritten)
+		{
+			this.groupName = groupName;
+			this.period = period;
+			this.date = date;
+			this.students = students;
+			this.checkedStudents = checkedStudents;
+			this.onWritten = onWritten;
+		}
+	}
+
+	/**
+	 * The absences to append to a file.
+	 */
+	private static class AbsentsFile
+	{
+		private final StringBuilder lines = new StringBuilder();
+		private long duration;
+	}
+}
@@ -0,0 +1,108 @@
+package fr.mrcraftcod.polytech.DI.RFID.threads;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import java.util.ArrayList;
+
+/**
+ * Thread reconnecting to the database when needed. It doesn't depend on any frame so it runs the same way with or
+ * without the interface.
+ * <p>
+ * Once reconnected, the students enrolled meanwhile are added to the database and the known students are read again
+ * from it. The cards enrolled from another computer while connected are found through the
+ * {@link fr.mrcraftcod.polytech.DI.RFID.utils.StudentCache}.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class DatabaseMonitor implements Runnable
+{
+	private static final long RETRY_DELAY = 15000;
+	private Thread thread;
+	private long lastInsertRetry;
+	private volatile boolean databaseConnected;
+
+	/**
+	 * Used to start the thread.
+	 */
+	public synchronized void start()
+	{
+		if(thread != null)
+			return;
+		thread = Threads.start("DatabaseMonitor", false, this);
+	}
+
+	/**
+	 * Used to stop the thread.
+	 */
+	public synchronized void stop()
+	{
+		if(thread != null)
+			thread.interrupt();
+		thread = null;
+	}
+
+	@Override
+	public void run()
+	{
+		while(!Thread.interrupted())
+		{
+			try
+			{
+				Thread.sleep(500);
+			}
+			catch(InterruptedException exception)
+			{
+				break;
+			}
+			databaseConnected = Utils.sql.isConnected();
+			if(!databaseConnected && getRetryDelay() <= 0 && !Utils.sql.isLogging() && Utils.sql.login())
+			{
+				databaseConnected = true;
+				retryPendingInserts();
+				syncStudents();
+			}
+			else if(databaseConnected && Utils.enrollmentQueue.hasPendingInserts() && System.currentTimeMillis() - lastInsertRetry >= RETRY_DELAY)
+				retryPendingInserts();
+		}
+	}
+
+	/**
+	 * Used to add to the database the students enrolled while it couldn't be reached.
+	 */
+	private void retryPendingInserts()
+	{
+		lastInsertRetry = System.currentTimeMillis();
+		Utils.enrollmentQueue.retryPendingInserts();
+	}
+
+	/**
+	 * Used to read the students from the database and replace the known ones.
+	 */
+	private void syncStudents()
+	{
+		ArrayList<Student> databaseStudents = Utils.sql.loadAllStudents();
+		if(databaseStudents != null)
+			Utils.syncStudents(databaseStudents);
+	}
+
+	/**
+	 * Used to know if the database was connected at the last check.
+	 *
+	 * @return True if connected, false if not.
+	 */
+	public boolean isDatabaseConnected()
+	{
+		return databaseConnected;
+	}
+
+	/**
+	 * Used to know in how much time the next connection to the database will be tried.
+	 *
+	 * @return The delay in milliseconds, 0 or less if it should be tried now.
+	 */
+	public long getRetryDelay()
+	{
+		return RETRY_DELAY - (System.currentTimeMillis() - Utils.sql.getLastConnectTime().getTime());
+	}
+}
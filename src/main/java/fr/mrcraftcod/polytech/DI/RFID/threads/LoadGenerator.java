@@ -0,0 +1,273 @@
+package fr.mrcraftcod.polytech.DI.RFID.threads;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.TapListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.*;
+import fr.mrcraftcod.polytech.DI.RFID.utils.InMemorySQLManager;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import fr.mrcraftcod.polytech.DI.TerminalReader.objects.RFIDCard;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Generator of synthetic taps, used to measure how many taps the program can handle.
+ * <p>
+ * Several simulated readers each put cards at a fixed rate through the {@link fr.mrcraftcod.polytech.DI.TerminalReader.interfaces.TerminalListener}
+ * methods of a {@link CardReader}. Some cards are unknown, some are held on the reader so they are read several times.
+ * The students are served by an {@link InMemorySQLManager} and split into many groups whose periods are all opened.
+ * <p>
+ * The throughput, the percentiles of the latency between the reading of a card and the end of its processing, and the
+ * growth of the heap are logged every second and at the end.
+ * <p>
+ * Started with <b>--load readers tapsPerSecond seconds</b>, tuned with <b>--load-students</b>, <b>--load-groups</b>,
+ * <b>--load-unknown</b> (ratio of unknown cards), <b>--load-repeat</b> (ratio of held cards) and
+ * <b>--load-db-latency</b> (delay of a database request in milliseconds).
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class LoadGenerator implements Runnable, TapListener
+{
+	private static final String READER_PREFIX = "Load-";
+	private static final long DRAIN_TIMEOUT = 30000;
+	private final int readerCount;
+	private final double tapsPerSecond;
+	private final long duration;
+	private int studentCount = 2000;
+	private int groupCount = 20;
+	private double unknownRatio = 0.05;
+	private double repeatRatio = 0.2;
+	private long databaseLatency = 2;
+	private final ArrayList<Student> students;
+	private final LatencyHistogram latencies;
+	private final AtomicLong injectedCount;
+	private TapPipeline pipeline;
+	private Runnable onFinished;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param readerCount The number of simulated readers.
+	 * @param tapsPerSecond The number of taps per second of each reader.
+	 * @param duration The duration of the load in seconds.
+	 */
+	public LoadGenerator(int readerCount, double tapsPerSecond, long duration)
+	{
+		this.readerCount = readerCount;
+		this.tapsPerSecond = tapsPerSecond;
+		this.duration = duration;
+		this.students = new ArrayList<>();
+		this.latencies = new LatencyHistogram();
+		this.injectedCount = new AtomicLong();
+	}
+
+	/**
+	 * Used to create a generator from the program arguments.
+	 *
+	 * @param args The arguments.
+	 * @return The generator, null if there is no <b>--load</b> argument.
+	 * @throws NumberFormatException If a value isn't a number.
+	 */
+	public static LoadGenerator fromArgs(String[] args) throws NumberFormatException
+	{
+		LoadGenerator generator = null;
+		for(int i = 0; i < args.length; i++)
+			if(args[i].equals("--load"))
+				generator = new LoadGenerator(Integer.parseInt(args[i + 1]), Double.parseDouble(args[i + 2]), Long.parseLong(args[i + 3]));
+		if(generator == null)
+			return null;
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("--load-students"))
+				generator.studentCount = Integer.parseInt(args[i + 1]);
+			else if(args[i].equals("--load-groups"))
+				generator.groupCount = Integer.parseInt(args[i + 1]);
+			else if(args[i].equals("--load-unknown"))
+				generator.unknownRatio = Double.parseDouble(args[i + 1]);
+			else if(args[i].equals("--load-repeat"))
+				generator.repeatRatio = Double.parseDouble(args[i + 1]);
+			else if(args[i].equals("--load-db-latency"))
+				generator.databaseLatency = Long.parseLong(args[i + 1]);
+		}
+		return generator;
+	}
+
+	/**
+	 * Used to create the database holding the synthetic students.
+	 *
+	 * @return The database.
+	 */
+	public InMemorySQLManager createDatabase()
+	{
+		Random random = new Random(42);
+		students.clear();
+		for(int i = 0; i < studentCount; i++)
+			students.add(new Student(String.format("04%012X", random.nextLong() & 0xFFFFFFFFFFFFL), "Load" + i, "Student"));
+		return new InMemorySQLManager(students, databaseLatency);
+	}
+
+	/**
+	 * Used to create the groups of the synthetic students. Each student is in about 3 groups, and every group has a
+	 * period opened all day long.
+	 *
+	 * @return The groups.
+	 */
+	public List<Group> createGroups()
+	{
+		Random random = new Random(42);
+		ArrayList<Group> groups = new ArrayList<>();
+		int groupSize = Math.min(students.size(), Math.max(1, students.size() * 3 / Math.max(1, groupCount)));
+		for(int i = 0; i < groupCount; i++)
+		{
+			Group group = new Group("LoadGroup-" + i);
+			try
+			{
+				group.addPeriod(new Period(Period.MONDAY | Period.TUESDAY | Period.WEDNESDAY | Period.THURSDAY | Period.FRIDAY | Period.SATURDAY | Period.SUNDAY, "0h00-24h00"));
+			}
+			catch(Exception exception)
+			{
+				Utils.logger.log(Level.WARNING, "Failed to add load period", exception);
+			}
+			ArrayList<Student> shuffled = new ArrayList<>(students);
+			Collections.shuffle(shuffled, random);
+			group.addStudents(shuffled.subList(0, groupSize));
+			groups.add(group);
+		}
+		return groups;
+	}
+
+	/**
+	 * Used to start the load.
+	 *
+	 * @param pipeline The pipeline processing the taps.
+	 * @param onFinished Called once the load is done, may be null.
+	 */
+	public synchronized void start(TapPipeline pipeline, Runnable onFinished)
+	{
+		if(this.pipeline != null)
+			return;
+		this.pipeline = pipeline;
+		this.onFinished = onFinished;
+		Threads.start("LoadGenerator", true, this);
+	}
+
+	@Override
+	public void run()
+	{
+		pipeline.addListener(this);
+		long coalesced = pipeline.getCoalescedCount();
+		long dropped = pipeline.getDroppedCount();
+		long heapStart = getUsedHeap(true);
+		long start = System.nanoTime();
+		long end = start + duration * 1000000000L;
+		ArrayList<Thread> threads = new ArrayList<>();
+		for(int i = 0; i < readerCount; i++)
+		{
+			CardReader reader = new CardReader(READER_PREFIX + i, pipeline, null);
+			threads.add(Threads.start("LoadReader-" + i, true, () -> injectTaps(reader, start, end)));
+		}
+		try
+		{
+			long lastProcessed = 0;
+			while(System.nanoTime() < end)
+			{
+				Thread.sleep(1000);
+				long processed = latencies.getCount();
+				Utils.logger.log(Level.INFO, String.format("Load: %d taps/s processed, queue=%d, heap=%dMB, %s", processed - lastProcessed, pipeline.getQueueDepth(), getUsedHeap(false) / (1024 * 1024), latencies));
+				lastProcessed = processed;
+			}
+			for(Thread thread : threads)
+				thread.join();
+			long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+			while(latencies.getCount() + pipeline.getCoalescedCount() - coalesced + pipeline.getDroppedCount() - dropped < injectedCount.get() && System.currentTimeMillis() < deadline)
+				Thread.sleep(10);
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			long heapEnd = getUsedHeap(true);
+			Utils.logger.log(Level.INFO, String.format("Load finished: %d readers, %d taps injected in %.3fs, %.1f taps/s sustained, processed=%d, coalesced=%d, dropped=%d, heap %dKB -> %dKB (%+dKB), %s", readerCount, injectedCount.get(), elapsed, latencies.getCount() / elapsed, latencies.getCount(), pipeline.getCoalescedCount() - coalesced, pipeline.getDroppedCount() - dropped, heapStart / 1024, heapEnd / 1024, (heapEnd - heapStart) / 1024, latencies));
+		}
+		catch(InterruptedException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Load interrupted");
+			for(Thread thread : threads)
+				thread.interrupt();
+		}
+		finally
+		{
+			pipeline.removeListener(this);
+		}
+		if(onFinished != null)
+			onFinished.run();
+	}
+
+	/**
+	 * Used to put cards on a reader at the wanted rate until the end of the load.
+	 *
+	 * @param reader The reader.
+	 * @param start The value of {@link System#nanoTime()} at the start of the load.
+	 * @param end The value of {@link System#nanoTime()} at the end of the load.
+	 */
+	private void injectTaps(CardReader reader, long start, long end)
+	{
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long interval = (long) (1e9 / tapsPerSecond);
+		long next = start + random.nextLong(Math.max(1, interval));
+		while(next < end && !Thread.currentThread().isInterrupted())
+		{
+			long wait = next - System.nanoTime();
+			if(wait > 0)
+				LockSupport.parkNanos(wait);
+			String uid;
+			if(students.isEmpty() || random.nextDouble() < unknownRatio)
+				uid = String.format("FF%012X", random.nextLong() & 0xFFFFFFFFFFFFL);
+			else
+				uid = students.get(random.nextInt(students.size())).getRawUid();
+			int reads = random.nextDouble() < repeatRatio ? 2 + random.nextInt(3) : 1;
+			for(int i = 0; i < reads; i++)
+			{
+				reader.cardAdded(new RFIDCard("", uid, null));
+				injectedCount.incrementAndGet();
+			}
+			reader.cardRemoved();
+			next += interval;
+		}
+		reader.stop();
+	}
+
+	/**
+	 * Used to get the memory used in the heap.
+	 *
+	 * @param collect Should the garbage collector be run before?
+	 * @return The used memory in bytes.
+	 */
+	private static long getUsedHeap(boolean collect)
+	{
+		if(collect)
+			System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@Override
+	public void studentTapped(TapEvent event, Student student, boolean checked)
+	{
+		if(event.getReaderName().startsWith(READER_PREFIX))
+			latencies.record(System.nanoTime() - event.getCreationNanoTime());
+	}
+
+	@Override
+	public void unknownCardTapped(TapEvent event)
+	{
+		if(event.getReaderName().startsWith(READER_PREFIX))
+			latencies.record(System.nanoTime() - event.getCreationNanoTime());
+	}
+
+	@Override
+	public void cardRemoved(TapEvent event)
+	{
+	}
+}
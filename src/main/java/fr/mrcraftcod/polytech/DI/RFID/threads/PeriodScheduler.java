@@ -0,0 +1,177 @@
+package fr.mrcraftcod.polytech.DI.RFID.threads;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.PeriodListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
+import java.util.IdentityHashMap;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * Scheduler opening and closing the periods of the groups.
+ * <p>
+ * Instead of polling the groups, it updates them only at the next start or end of a period among all the groups, given
+ * by the {@link fr.mrcraftcod.polytech.DI.RFID.objects.ScheduleTimeline}, then sleeps until the following one. It wakes
+ * up at least every hour, in case the clock was changed or the
+ * {@link fr.mrcraftcod.polytech.DI.RFID.utils.ScheduleExceptions} file was modified, and right away when the periods of a
+ * group are modified through {@link #reschedule()}.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class PeriodScheduler implements Runnable
+{
+	private static final long MAX_DELAY = 3600000;
+	private final ScheduledExecutorService executor;
+	private final CopyOnWriteArrayList<PeriodListener> listeners;
+	private final IdentityHashMap<Group, Period> openedPeriods;
+	private ScheduledFuture<?> next;
+	private boolean running;
+	private boolean rerun;
+
+	/**
+	 * Constructor.
+	 */
+	public PeriodScheduler()
+	{
+		this.executor = Executors.newSingleThreadScheduledExecutor(task -> Threads.newThread("PeriodScheduler", false, task));
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.openedPeriods = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Used to start the scheduler.
+	 */
+	public void start()
+	{
+		reschedule();
+	}
+
+	/**
+	 * Used to stop the scheduler.
+	 */
+	public synchronized void stop()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Used to update the groups now and compute again the next boundary, for example after a period was modified.
+	 */
+	public synchronized void reschedule()
+	{
+		if(executor.isShutdown())
+			return;
+		if(running)
+		{
+			rerun = true;
+			return;
+		}
+		if(next != null)
+			next.cancel(false);
+		next = executor.schedule(this, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Used to update the groups now and wait until it's done, for example after the current time was shifted.
+	 *
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public void updateNow() throws InterruptedException
+	{
+		try
+		{
+			executor.submit(this).get();
+		}
+		catch(RejectedExecutionException | ExecutionException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Couldn't update the periods", exception);
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		synchronized(this)
+		{
+			running = true;
+		}
+		long delay = MAX_DELAY;
+		try
+		{
+			if(Utils.scheduleExceptions != null && Utils.scheduleExceptions.reloadIfModified())
+				Utils.logger.log(Level.INFO, "Schedule exceptions modified");
+			long now = WeekClock.currentTimeMillis();
+			for(Group group : Utils.groups)
+			{
+				group.update();
+				fireChanges(group, group.getCurrentPeriod());
+			}
+			openedPeriods.keySet().retainAll(Utils.groups);
+			int minutesToNext = Utils.scheduleTimeline.getMinutesToNextTransitionAt(now);
+			if(minutesToNext > 0)
+				delay = Math.min(delay, Math.floorDiv(now, 60000L) * 60000L + minutesToNext * 60000L - now);
+		}
+		catch(Exception exception)
+		{
+			Utils.logger.log(Level.SEVERE, "Error updating the periods", exception);
+		}
+		synchronized(this)
+		{
+			running = false;
+			if(executor.isShutdown())
+				return;
+			if(next != null)
+				next.cancel(false);
+			next = executor.schedule(this, rerun ? 0 : Math.max(0, delay), TimeUnit.MILLISECONDS);
+			rerun = false;
+		}
+	}
+
+	/**
+	 * Used to notify the listeners if the current period of a group changed since the last update.
+	 *
+	 * @param group The group.
+	 * @param period The current period of the group.
+	 */
+	private void fireChanges(Group group, Period period)
+	{
+		Period previous = period == null ? openedPeriods.remove(group) : openedPeriods.put(group, period);
+		if(previous == period)
+			return;
+		if(previous != null)
+		{
+			Utils.logger.log(Level.INFO, "Period " + previous.getRawTimeInterval() + " of group " + group + " closed");
+			for(PeriodListener listener : listeners)
+				listener.periodClosed(group, previous);
+		}
+		if(period != null)
+		{
+			Utils.logger.log(Level.INFO, "Period " + period.getRawTimeInterval() + " of group " + group + " opened");
+			for(PeriodListener listener : listeners)
+				listener.periodOpened(group, period);
+		}
+	}
+
+	/**
+	 * Used to add a listener.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addListener(PeriodListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * Used to remove a listener.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	public void removeListener(PeriodListener listener)
+	{
+		listeners.remove(listener);
+	}
+}
@@ -0,0 +1,379 @@
+package fr.mrcraftcod.polytech.DI.RFID.threads;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.TapListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.StageStatistics;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Pipeline processing the taps of the readers.
+ * <p>
+ * The reader callbacks only put a {@link TapEvent} into a bounded queue. A worker thread then resolves the student,
+ * checks him, logs the check and notifies the {@link TapListener}s, so that a slow step never delays the reading of the
+ * next card.
+ * <p>
+ * A card staying on a reader makes it fire the same card several times. Taps of the same card on the same reader
+ * within the debounce delay of each other are coalesced into the first one, before being queued.
+ * <p>
+ * When the virtual threads are used (see {@link Threads}), the worker hands the taps of each reader to a virtual thread
+ * of this reader, so a tap waiting on the database doesn't delay the other readers. The taps of a same reader are
+ * still processed in order, so a card removal is never processed before the tap it follows. Each reader has at most
+ * {@value #MAX_TAPS_PER_READER} taps waiting or being processed; the next ones of this reader are dropped and counted
+ * with the ones of a full queue, so a slow reader never holds back the taps of the others.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class TapPipeline implements Runnable
+{
+	/**
+	 * The stages of the pipeline, for the statistics.
+	 */
+	public enum Stage
+	{
+		QUEUE, RESOLVE, CHECK, LOG, NOTIFY, TOTAL
+	}
+
+	private static final int QUEUE_CAPACITY = 256;
+	private static final int LAST_TAPS_PRUNE_SIZE = 1024;
+	private static final int MAX_TAPS_PER_READER = 64;
+	private static final long STOP_TIMEOUT = 5000;
+	private final ArrayBlockingQueue<TapEvent> queue;
+	private final CopyOnWriteArrayList<TapListener> listeners;
+	private final StageStatistics[] statistics;
+	private final AtomicLong droppedCount;
+	private final AtomicLong coalescedCount;
+	private final ConcurrentHashMap<String, Long> lastTaps;
+	private volatile long debounceDelay;
+	private final ConcurrentHashMap<String, ReaderLane> readerLanes;
+	private Thread thread;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param debounceDelay The delay in milliseconds during which a same card on a same reader is ignored.
+	 */
+	public TapPipeline(long debounceDelay)
+	{
+		this.debounceDelay = debounceDelay;
+		this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		this.listeners = new CopyOnWriteArrayList<>();
+		this.lastTaps = new ConcurrentHashMap<>();
+		this.readerLanes = new ConcurrentHashMap<>();
+		this.droppedCount = new AtomicLong();
+		this.coalescedCount = new AtomicLong();
+		this.statistics = new StageStatistics[Stage.values().length];
+		for(Stage stage : Stage.values())
+			this.statistics[stage.ordinal()] = new StageStatistics(stage.name());
+	}
+
+	/**
+	 * Used to start the worker thread.
+	 */
+	public synchronized void start()
+	{
+		if(thread != null)
+			return;
+		thread = Threads.start("TapPipeline", true, this);
+	}
+
+	/**
+	 * Used to stop the worker thread. Events still in the queue are dropped, the ones being processed are waited for.
+	 */
+	public void stop()
+	{
+		Thread stopped;
+		synchronized(this)
+		{
+			stopped = thread;
+			thread = null;
+		}
+		try
+		{
+			if(stopped != null)
+			{
+				stopped.interrupt();
+				stopped.join(STOP_TIMEOUT);
+			}
+			ArrayList<ReaderLane> lanes = new ArrayList<>(readerLanes.values());
+			readerLanes.clear();
+			for(ReaderLane lane : lanes)
+				lane.executor.shutdown();
+			for(ReaderLane lane : lanes)
+				lane.executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+		Utils.logger.log(Level.INFO, "Tap pipeline statistics: " + this);
+	}
+
+	/**
+	 * Used to give an event to the pipeline. Never blocks.
+	 *
+	 * @param event The event to process.
+	 * @return True if the event was queued or coalesced with a previous one, false if the queue is full and the event
+	 * dropped.
+	 */
+	public boolean submit(TapEvent event)
+	{
+		if(event.getType() == TapEvent.Type.CARD_ADDED && isRepeat(event))
+		{
+			coalescedCount.incrementAndGet();
+			return true;
+		}
+		if(queue.offer(event))
+			return true;
+		droppedCount.incrementAndGet();
+		Utils.logger.log(Level.WARNING, "Tap queue full, dropping " + event);
+		return false;
+	}
+
+	/**
+	 * Used to know if a tap repeats a previous tap of the same card on the same reader, within the debounce delay. The
+	 * delay restarts on each repeat, so a card held on the reader is only processed once.
+	 *
+	 * @param event The tap.
+	 * @return True if it's a repeat, false if it should be processed.
+	 */
+	private boolean isRepeat(TapEvent event)
+	{
+		long delay = debounceDelay;
+		if(delay <= 0 || event.getUid() == null)
+			return false;
+		Long last = lastTaps.put(event.getReaderName() + "\n" + event.getUid(), event.getTime());
+		if(lastTaps.size() > LAST_TAPS_PRUNE_SIZE)
+			lastTaps.values().removeIf(time -> event.getTime() - time > delay);
+		return last != null && event.getTime() - last >= 0 && event.getTime() - last < delay;
+	}
+
+	/**
+	 * Used to set the delay during which a same card on a same reader is ignored.
+	 *
+	 * @param debounceDelay The delay in milliseconds, 0 to process every tap.
+	 */
+	public void setDebounceDelay(long debounceDelay)
+	{
+		this.debounceDelay = debounceDelay;
+	}
+
+	/**
+	 * Used to add a listener.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addListener(TapListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * Used to remove a listener.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	public void removeListener(TapListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void run()
+	{
+		while(!Thread.interrupted())
+		{
+			try
+			{
+				TapEvent event = queue.take();
+				ReaderLane lane = getReaderLane(event.getReaderName());
+				if(lane == null)
+					processSafely(event);
+				else if(!lane.taps.tryAcquire())
+				{
+					droppedCount.incrementAndGet();
+					Utils.logger.log(Level.WARNING, "Too many taps waiting for reader " + event.getReaderName() + ", dropping " + event);
+				}
+				else
+					lane.executor.execute(() -> {
+						try
+						{
+							processSafely(event);
+						}
+						finally
+						{
+							lane.taps.release();
+						}
+					});
+			}
+			catch(InterruptedException exception)
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Used to get the lane processing the taps of a reader in order, created on the first tap of the reader.
+	 *
+	 * @param readerName The name of the reader.
+	 * @return The lane, null if the virtual threads aren't used.
+	 */
+	private ReaderLane getReaderLane(String readerName)
+	{
+		if(!Threads.isVirtual())
+			return null;
+		return readerLanes.computeIfAbsent(readerName == null ? "" : readerName, ReaderLane::new);
+	}
+
+	/**
+	 * Used to process an event, logging the errors.
+	 *
+	 * @param event The event to process.
+	 */
+	private void processSafely(TapEvent event)
+	{
+		try
+		{
+			process(event);
+		}
+		catch(Exception exception)
+		{
+			Utils.logger.log(Level.SEVERE, "Error processing tap", exception);
+		}
+	}
+
+	/**
+	 * Used to process an event.
+	 *
+	 * @param event The event to process.
+	 */
+	private void process(TapEvent event)
+	{
+		long time = System.nanoTime();
+		statistics[Stage.QUEUE.ordinal()].record(time - event.getCreationNanoTime());
+		if(event.getType() == TapEvent.Type.CARD_REMOVED)
+		{
+			for(TapListener listener : listeners)
+				listener.cardRemoved(event);
+			record(Stage.NOTIFY, time);
+			return;
+		}
+		Student student = Utils.getStudentByUID(event.getUid(), true);
+		time = record(Stage.RESOLVE, time);
+		if(student == null)
+		{
+			for(TapListener listener : listeners)
+				listener.unknownCardTapped(event);
+			record(Stage.NOTIFY, time);
+			record(Stage.TOTAL, event.getCreationNanoTime());
+			return;
+		}
+		Utils.logger.log(Level.INFO, Utils.resourceBundle.getString("card_info") + ": " + student + " " + event);
+		boolean checked = Utils.checkStudent(student);
+		time = record(Stage.CHECK, time);
+		if(checked)
+		{
+			Utils.logCheck(student);
+			time = record(Stage.LOG, time);
+		}
+		for(TapListener listener : listeners)
+			listener.studentTapped(event, student, checked);
+		record(Stage.NOTIFY, time);
+		record(Stage.TOTAL, event.getCreationNanoTime());
+	}
+
+	/**
+	 * Used to record the end of a stage.
+	 *
+	 * @param stage The stage that ended.
+	 * @param start The value of {@link System#nanoTime()} when the stage started.
+	 * @return The value of {@link System#nanoTime()} when the stage ended.
+	 */
+	private long record(Stage stage, long start)
+	{
+		long end = System.nanoTime();
+		statistics[stage.ordinal()].record(end - start);
+		return end;
+	}
+
+	/**
+	 * Used to get how many events are waiting to be processed.
+	 *
+	 * @return The queue depth.
+	 */
+	public int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Used to get how many events were dropped because the queue was full or their reader had too many taps waiting.
+	 *
+	 * @return The dropped count.
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount.get();
+	}
+
+	/**
+	 * Used to get how many taps were coalesced with a previous one.
+	 *
+	 * @return The coalesced count.
+	 */
+	public long getCoalescedCount()
+	{
+		return coalescedCount.get();
+	}
+
+	/**
+	 * Used to get the latency statistics of a stage.
+	 *
+	 * @param stage The stage.
+	 * @return The statistics.
+	 */
+	public StageStatistics getStatistics(Stage stage)
+	{
+		return statistics[stage.ordinal()];
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("TapPipeline[queue=").append(getQueueDepth()).append(", dropped=").append(getDroppedCount()).append(", coalesced=").append(getCoalescedCount());
+		for(StageStatistics stageStatistics : statistics)
+			sb.append(", ").append(stageStatistics);
+		return sb.append("]").toString();
+	}
+
+	/**
+	 * Taps of a reader, processed in order by their own executor.
+	 */
+	private static final class ReaderLane
+	{
+		private final ExecutorService executor;
+		private final Semaphore taps;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param readerName The name of the reader.
+		 */
+		private ReaderLane(String readerName)
+		{
+			this.executor = Threads.newSerialExecutor("TapPipeline-" + readerName);
+			this.taps = new Semaphore(MAX_TAPS_PER_READER);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package fr.mrcraftcod.polytech.DI.RFID.threads;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.TapListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.CardReader;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Threads;
+import fr.mrcraftcod.polytech.DI.RFID.utils.Utils;
+import fr.mrcraftcod.polytech.DI.RFID.utils.WeekClock;
+import fr.mrcraftcod.polytech.DI.TerminalReader.objects.RFIDCard;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Thread replaying recorded taps, like the ones of the checked logs, through a {@link CardReader} as if the cards were
+ * put on it.
+ * <p>
+ * The taps are injected with the same delays between them as when they were recorded, divided by the speed factor. Once
+ * they have all been processed by the {@link TapPipeline}, the throughput and the latencies are logged.
+ * <p>
+ * The current time of the program is shifted to the recorded time of each tap (see {@link WeekClock}), so the taps are
+ * checked against the periods of the day they were recorded. Before a tap after the start or end of a period, the
+ * previous taps are waited for and the groups are updated.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class TapReplayer implements Runnable, TapListener
+{
+	private static final long DRAIN_TIMEOUT = 30000;
+	private final List<TapEvent> taps;
+	private final CardReader reader;
+	private final TapPipeline pipeline;
+	private final double speed;
+	private final Runnable onFinished;
+	private final AtomicLong processedCount;
+	private Thread thread;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param taps The taps to replay.
+	 * @param pipeline The pipeline processing the taps.
+	 * @param speed The speed factor, 1 for the original pacing, 0 or less to inject them as fast as possible.
+	 * @param onFinished Called once the replay is done, may be null.
+	 */
+	public TapReplayer(List<TapEvent> taps, TapPipeline pipeline, double speed, Runnable onFinished)
+	{
+		this.taps = new ArrayList<>(taps);
+		this.taps.sort(Comparator.comparingLong(TapEvent::getTime));
+		this.pipeline = pipeline;
+		this.reader = new CardReader("Replay", pipeline, null);
+		this.speed = speed;
+		this.onFinished = onFinished;
+		this.processedCount = new AtomicLong();
+	}
+
+	/**
+	 * Used to create a copy of the data folder, so a replay doesn't modify the real groups and logs.
+	 *
+	 * @param baseFile The data folder.
+	 * @return The copy.
+	 * @throws IOException If the copy can't be done.
+	 */
+	public static File createSandbox(File baseFile) throws IOException
+	{
+		File sandbox = Files.createTempDirectory("RFID-replay").toFile();
+		File groups = new File(baseFile, "Groups");
+		File sandboxGroups = new File(sandbox, "Groups");
+		sandboxGroups.mkdirs();
+		File[] files = groups.listFiles();
+		if(files != null)
+			for(File file : files)
+				Files.copy(file.toPath(), new File(sandboxGroups, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		for(String name : new String[]{"students.snapshot", "exceptions.txt"})
+		{
+			File file = new File(baseFile, name);
+			if(file.exists())
+				Files.copy(file.toPath(), new File(sandbox, name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		Utils.logger.log(Level.INFO, "Replaying in sandbox " + sandbox.getAbsolutePath());
+		return sandbox;
+	}
+
+	/**
+	 * Used to start the replay.
+	 */
+	public synchronized void start()
+	{
+		if(thread != null)
+			return;
+		thread = Threads.start("TapReplayer", true, this);
+	}
+
+	@Override
+	public void run()
+	{
+		pipeline.addListener(this);
+		long coalesced = pipeline.getCoalescedCount();
+		long dropped = pipeline.getDroppedCount();
+		long start = System.nanoTime();
+		int injected = 0;
+		try
+		{
+			for(TapEvent tap : taps)
+			{
+				if(speed > 0)
+				{
+					long wait = (long) ((tap.getTime() - taps.get(0).getTime()) / speed) - (System.nanoTime() - start) / 1000000;
+					if(wait > 0)
+						Thread.sleep(wait);
+				}
+				boolean periodsChanged = injected == 0 || crossesTransition(taps.get(injected - 1).getTime(), tap.getTime());
+				if(periodsChanged)
+					awaitProcessed(injected, coalesced, dropped);
+				WeekClock.setReplayOffset(tap.getTime() - System.currentTimeMillis());
+				if(periodsChanged)
+					Utils.periodScheduler.updateNow();
+				reader.cardAdded(new RFIDCard("", tap.getUid(), null));
+				reader.cardRemoved();
+				injected++;
+			}
+			long injectionEnd = System.nanoTime();
+			awaitProcessed(injected, coalesced, dropped);
+			long end = System.nanoTime();
+			Utils.logger.log(Level.INFO, String.format("Replayed %d taps in %.3fs (injection %.3fs), %.1f taps/s, processed=%d, coalesced=%d, dropped=%d, %s", injected, (end - start) / 1e9, (injectionEnd - start) / 1e9, injected / ((end - start) / 1e9), processedCount.get(), pipeline.getCoalescedCount() - coalesced, pipeline.getDroppedCount() - dropped, pipeline.getStatistics(TapPipeline.Stage.TOTAL)));
+		}
+		catch(InterruptedException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Replay interrupted after " + injected + " taps");
+		}
+		finally
+		{
+			pipeline.removeListener(this);
+			reader.stop();
+			WeekClock.setReplayOffset(0);
+			Utils.periodScheduler.reschedule();
+		}
+		if(onFinished != null)
+			onFinished.run();
+	}
+
+	/**
+	 * Used to know if a period starts or ends between two instants.
+	 *
+	 * @param from The first instant, in milliseconds since the epoch.
+	 * @param to The second instant, in milliseconds since the epoch.
+	 * @return True if a period starts or ends between them.
+	 */
+	private static boolean crossesTransition(long from, long to)
+	{
+		int minutesToNext = Utils.scheduleTimeline.getMinutesToNextTransitionAt(from);
+		return minutesToNext > 0 && to >= Math.floorDiv(from, 60000L) * 60000L + minutesToNext * 60000L;
+	}
+
+	/**
+	 * Used to wait until the injected taps are processed, coalesced or dropped by the pipeline, at most
+	 * {@value #DRAIN_TIMEOUT}ms.
+	 *
+	 * @param injected The number of taps injected.
+	 * @param coalesced The coalesced count of the pipeline when the replay started.
+	 * @param dropped The dropped count of the pipeline when the replay started.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	private void awaitProcessed(int injected, long coalesced, long dropped) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+		while(processedCount.get() + pipeline.getCoalescedCount() - coalesced + pipeline.getDroppedCount() - dropped < injected && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+	}
+
+	@Override
+	public void studentTapped(TapEvent event, Student student, boolean checked)
+	{
+		if(event.getReaderName().equals(reader.getName()))
+			processedCount.incrementAndGet();
+	}
+
+	@Override
+	public void unknownCardTapped(TapEvent event)
+	{
+		if(event.getReaderName().equals(reader.getName()))
+			processedCount.incrementAndGet();
+	}
+
+	@Override
+	public void cardRemoved(TapEvent event)
+	{
+	}
+}
@@ -0,0 +1,233 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import fr.mrcraftcod.polytech.DI.RFID.objects.ScheduleTimeline;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Used to check several taps at once, like the buffer of a reader that was offline or a correction file.
+ * <p>
+ * The students are resolved together, the ones not known locally being asked to the database in one go. Each tap is
+ * then given to the period that was opened at its own time: if it is still the current period of its group, the
+ * student is checked as with a live tap, otherwise the period is already over: the check is logged and the absence
+ * written for the student at the end of the period is removed. All the checks are logged at the end, with the time of
+ * their tap.
+ * <p>
+ * This can block on the database and on the disk, it shouldn't be called from the EDT.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class BatchCheckIn
+{
+	/**
+	 * What happened to a tap.
+	 */
+	public enum Outcome
+	{
+		UNKNOWN, NO_PERIOD, ALREADY_CHECKED, PAST_PERIOD, CHECKED
+	}
+
+	/**
+	 * Used to check a list of taps. Only the {@link TapEvent.Type#CARD_ADDED} taps are used.
+	 *
+	 * @param taps The taps, in any order.
+	 * @return How many taps had each outcome.
+	 */
+	public static Result checkIn(List<TapEvent> taps)
+	{
+		ArrayList<TapEvent> sorted = new ArrayList<>();
+		for(TapEvent tap : taps)
+			if(tap.getType() == TapEvent.Type.CARD_ADDED && tap.getUid() != null)
+				sorted.add(tap);
+		sorted.sort(Comparator.comparingLong(TapEvent::getTime));
+		HashMap<String, Student> students = resolve(sorted);
+		Result result = new Result();
+		ArrayList<Map.Entry<Date, Student>> checks = new ArrayList<>();
+		ArrayList<PastCheck> pastPeriodChecks = new ArrayList<>();
+		HashSet<String> pastChecks = new HashSet<>();
+		SimpleDateFormat dayFormat = new SimpleDateFormat("yyyyMMdd");
+		long now = System.currentTimeMillis();
+		for(TapEvent tap : sorted)
+		{
+			Student student = students.get(Student.normaliseUID(tap.getUid()));
+			Outcome outcome = Outcome.UNKNOWN;
+			if(student != null)
+			{
+				outcome = Outcome.NO_PERIOD;
+				Date date = new Date(tap.getTime());
+				for(ScheduleTimeline.Entry entry : Utils.scheduleTimeline.getActiveAt(tap.getTime()))
+				{
+					Group group = entry.getGroup();
+					Period period = entry.getPeriod();
+					synchronized(group)
+					{
+						Outcome groupOutcome;
+						if(period.equals(group.getCurrentPeriod()) && now - tap.getTime() <= period.getDuration())
+							groupOutcome = group.checkStudent(student) ? Outcome.CHECKED : Outcome.ALREADY_CHECKED;
+						else if(pastChecks.add(group.getName() + "\n" + period + "\n" + dayFormat.format(date) + "\n" + student.getNameKey()))
+						{
+							groupOutcome = Outcome.PAST_PERIOD;
+							pastPeriodChecks.add(new PastCheck(student, period, date));
+						}
+						else
+							groupOutcome = Outcome.ALREADY_CHECKED;
+						if(groupOutcome.compareTo(outcome) > 0)
+							outcome = groupOutcome;
+					}
+				}
+				if(outcome == Outcome.CHECKED || outcome == Outcome.PAST_PERIOD)
+					checks.add(new AbstractMap.SimpleEntry<>(date, student));
+			}
+			result.add(outcome);
+		}
+		// Outside of the locks of the groups, as the absents may have to be written first.
+		if(Utils.absentsFinaliser != null)
+			for(PastCheck pastCheck : pastPeriodChecks)
+				if(Utils.absentsFinaliser.removeAbsence(pastCheck.student, pastCheck.period, pastCheck.date))
+					result.removedAbsences++;
+		Utils.logChecks(checks);
+		Utils.logger.log(Level.INFO, "Batch check-in of " + taps.size() + " taps: " + result);
+		return result;
+	}
+
+	/**
+	 * Used to get the students of the taps, asking the database once for all the ones not known locally.
+	 *
+	 * @param taps The taps.
+	 * @return The students found by their normalised UID.
+	 */
+	private static HashMap<String, Student> resolve(List<TapEvent> taps)
+	{
+		HashMap<String, Student> students = new HashMap<>();
+		HashSet<String> missing = new HashSet<>();
+		for(TapEvent tap : taps)
+		{
+			String uid = Student.normaliseUID(tap.getUid());
+			if(students.containsKey(uid) || missing.contains(uid))
+				continue;
+			Student student = Utils.getStudentByUID(uid, false);
+			if(student != null)
+				students.put(uid, student);
+			else
+				missing.add(uid);
+		}
+		if(!missing.isEmpty() && Utils.sql.isConnected())
+			for(Student student : Utils.sql.getStudentsByUID(missing))
+			{
+				Utils.studentCache.put(student);
+				students.put(student.getUidKey(), student);
+			}
+		return students;
+	}
+
+	/**
+	 * Used to read the taps of a file written like the checked logs: one tap per line, as the date formatted as
+	 * <b>[zzz] dd/MM/yyyy HH:mm:ss</b>, the name of the student and his UID separated by semicolons.
+	 *
+	 * @param file The file to read.
+	 * @return The taps read, the invalid lines being ignored.
+	 */
+	public static ArrayList<TapEvent> readTaps(File file)
+	{
+		ArrayList<TapEvent> taps = new ArrayList<>();
+		SimpleDateFormat dateFormat = new SimpleDateFormat("[zzz] dd/MM/yyyy HH:mm:ss");
+		List<String> lines = Utils.readTextFile(file);
+		if(lines == null)
+			return taps;
+		for(String line : lines)
+		{
+			String[] infos = line.split(";");
+			if(infos.length < 3)
+				continue;
+			try
+			{
+				taps.add(new TapEvent(TapEvent.Type.CARD_ADDED, file.getName(), infos[2].trim(), dateFormat.parse(infos[0].trim()).getTime()));
+			}
+			catch(ParseException exception)
+			{
+				Utils.logger.log(Level.WARNING, "Ignoring invalid tap line: " + line);
+			}
+		}
+		return taps;
+	}
+
+	/**
+	 * A check made in a period that is over.
+	 */
+	private static class PastCheck
+	{
+		private final Student student;
+		private final Period period;
+		private final Date date;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param student The student.
+		 * @param period The period.
+		 * @param date The date of the tap.
+		 */
+		private PastCheck(Student student, Period period, Date date)
+		{
+			this.student = student;
+			this.period = period;
+			this.date = date;
+		}
+	}
+
+	/**
+	 * The outcomes of a batch.
+	 */
+	public static class Result
+	{
+		private final int[] counts = new int[Outcome.values().length];
+		private int removedAbsences;
+
+		/**
+		 * Used to count an outcome.
+		 *
+		 * @param outcome The outcome.
+		 */
+		private void add(Outcome outcome)
+		{
+			counts[outcome.ordinal()]++;
+		}
+
+		/**
+		 * Used to get how many taps had an outcome.
+		 *
+		 * @param outcome The outcome.
+		 * @return The number of taps.
+		 */
+		public int getCount(Outcome outcome)
+		{
+			return counts[outcome.ordinal()];
+		}
+
+		/**
+		 * Used to get how many absences were removed by the checks in past periods.
+		 *
+		 * @return The number of absences.
+		 */
+		public int getRemovedAbsences()
+		{
+			return removedAbsences;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder("Result[");
+			for(Outcome outcome : Outcome.values())
+				sb.append(outcome.ordinal() == 0 ? "" : ", ").append(outcome.name().toLowerCase()).append("=").append(getCount(outcome));
+			return sb.append(", removed_absences=").append(removedAbsences).append("]").toString();
+		}
+	}
+}
@@ -0,0 +1,555 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Append-only journal of the checks made during the periods, used to restore them after a restart.
+ * <p>
+ * Each check, uncheck and end of period is queued and returns right away, so recording a check never waits for the
+ * disk. A thread appends the queued records to the file and syncs them to the disk together, at most every
+ * {@value #COMMIT_INTERVAL}ms, so a power cut loses at most the records of the last milliseconds. The journal also
+ * keeps in memory the checks of the periods still opened, and rewrites the file with only them once too many records
+ * were appended, so its size stays proportional to the number of checks of the current periods.
+ * <p>
+ * A period that ended stays in the journal until its absents are written by the
+ * {@link fr.mrcraftcod.polytech.DI.RFID.threads.AbsentsFinaliser}, which then closes it. The ended periods that weren't
+ * closed, because the program stopped before, are given again to the finaliser when restoring.
+ * <p>
+ * The file starts with a magic number and a version, followed by the records: the operation, its time, the group name,
+ * the period and the name of the student. A record cut by a crash ends the reading.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class CheckJournal
+{
+	private static final int MAGIC = 0x52464A4C;
+	private static final int JOURNAL_VERSION = 1;
+	private static final byte CHECK = 1, UNCHECK = 2, CLOSE = 3, END = 4;
+	private static final int COMPACTION_THRESHOLD = 1024;
+	private static final long COMMIT_INTERVAL = 10;
+	private static final long STOP_TIMEOUT = 5000;
+	private final File file;
+	private final LinkedHashMap<String, GroupChecks> checks;
+	private final Object writeLock;
+	private ArrayList<JournalRecord> pending;
+	private FileOutputStream fos;
+	private DataOutputStream dos;
+	private int appendedRecords;
+	private Thread thread;
+
+	/**
+	 * Constructor. Reads the existing journal, if any.
+	 *
+	 * @param file The journal file.
+	 */
+	public CheckJournal(File file)
+	{
+		this.file = file;
+		this.checks = new LinkedHashMap<>();
+		this.writeLock = new Object();
+		this.pending = new ArrayList<>();
+		read();
+	}
+
+	/**
+	 * Used to start the thread writing the records.
+	 */
+	public synchronized void start()
+	{
+		if(thread != null)
+			return;
+		thread = Threads.start("CheckJournal", false, this::run);
+	}
+
+	/**
+	 * Used to stop the thread writing the records. The records still queued are written before returning.
+	 */
+	public void stop()
+	{
+		Thread stopped;
+		synchronized(this)
+		{
+			stopped = thread;
+			thread = null;
+		}
+		if(stopped == null)
+			return;
+		stopped.interrupt();
+		try
+		{
+			stopped.join(STOP_TIMEOUT);
+		}
+		catch(InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	/**
+	 * Used to write the queued records as they come, syncing each batch once.
+	 */
+	private void run()
+	{
+		while(!Thread.interrupted())
+		{
+			try
+			{
+				synchronized(this)
+				{
+					while(pending.isEmpty())
+						wait();
+				}
+				flush();
+				Thread.sleep(COMMIT_INTERVAL);
+			}
+			catch(InterruptedException exception)
+			{
+				break;
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * Used to read the journal file into the state in memory.
+	 */
+	private void read()
+	{
+		if(!file.exists())
+			return;
+		long start = System.nanoTime();
+		int records = 0;
+		try(DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if(dis.readInt() != MAGIC || dis.readInt() != JOURNAL_VERSION)
+			{
+				Utils.logger.log(Level.WARNING, "Ignoring check journal " + file.getAbsolutePath() + ", unknown format");
+				return;
+			}
+			while(true)
+			{
+				byte operation = dis.readByte();
+				long time = dis.readLong();
+				String group = dis.readUTF();
+				String period = dis.readUTF();
+				String student = dis.readUTF();
+				apply(operation, time, group, period, student);
+				records++;
+			}
+		}
+		catch(EOFException ignored)
+		{
+		}
+		catch(IOException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Failed to read check journal " + file.getAbsolutePath() + ", stopped after " + records + " records", exception);
+		}
+		Utils.logger.log(Level.INFO, "Read " + records + " records from check journal in " + (System.nanoTime() - start) / 1000000 + "ms");
+	}
+
+	/**
+	 * Used to apply a record to the state in memory.
+	 *
+	 * @param operation The operation.
+	 * @param time The time of the record.
+	 * @param group The group name.
+	 * @param period The period, as given by {@link #periodKey(Period)}.
+	 * @param student The name key of the student.
+	 */
+	private void apply(byte operation, long time, String group, String period, String student)
+	{
+		String key = group + "\n" + period;
+		if(operation == CLOSE)
+		{
+			checks.remove(key);
+			return;
+		}
+		GroupChecks groupChecks = checks.get(key);
+		if(groupChecks == null)
+			checks.put(key, groupChecks = new GroupChecks(group, period));
+		if(operation == CHECK)
+			groupChecks.students.putIfAbsent(student, time);
+		else if(operation == UNCHECK)
+			groupChecks.students.remove(student);
+		else if(operation == END)
+			groupChecks.endTime = time;
+	}
+
+	/**
+	 * Used to restore the checks of the periods that are still opened, and to give again to the
+	 * {@link fr.mrcraftcod.polytech.DI.RFID.threads.AbsentsFinaliser} the periods that ended without their absents being
+	 * written. The groups must have been updated so they know their current period. The journal is then compacted.
+	 *
+	 * @param groups The groups to restore.
+	 */
+	public void restore(Collection<Group> groups)
+	{
+		synchronized(this)
+		{
+			restoreChecks(groups);
+		}
+		compact();
+	}
+
+	/**
+	 * Used to restore the checks of the groups from the state in memory.
+	 *
+	 * @param groups The groups to restore.
+	 */
+	private void restoreChecks(Collection<Group> groups)
+	{
+		long now = WeekClock.currentTimeMillis();
+		int restored = 0;
+		int ended = 0;
+		HashMap<String, Group> groupsByName = new HashMap<>();
+		for(Group group : groups)
+			groupsByName.put(group.getName(), group);
+		Iterator<GroupChecks> groupsIterator = checks.values().iterator();
+		while(groupsIterator.hasNext())
+		{
+			GroupChecks groupChecks = groupsIterator.next();
+			Group group = groupsByName.get(groupChecks.group);
+			if(group == null)
+			{
+				groupsIterator.remove();
+				continue;
+			}
+			if(groupChecks.endTime > 0)
+			{
+				Period period = parsePeriodKey(groupChecks.period);
+				if(period == null || Utils.absentsFinaliser == null)
+				{
+					groupsIterator.remove();
+					continue;
+				}
+				ArrayList<Student> students = group.getStudents();
+				ArrayList<Student> checkedStudents = new ArrayList<>();
+				for(Student student : students)
+					if(groupChecks.students.containsKey(student.getNameKey()))
+						checkedStudents.add(student);
+				Utils.absentsFinaliser.submit(group, period, new Date(groupChecks.endTime), students, checkedStudents, () -> close(group, period));
+				ended++;
+				continue;
+			}
+			Period period = group.getCurrentPeriod();
+			if(period == null || !periodKey(period).equals(groupChecks.period))
+			{
+				groupsIterator.remove();
+				continue;
+			}
+			Iterator<Map.Entry<String, Long>> iterator = groupChecks.students.entrySet().iterator();
+			while(iterator.hasNext())
+			{
+				Map.Entry<String, Long> entry = iterator.next();
+				if(now - entry.getValue() > period.getDuration() || !period.isInPeriod(new Date(entry.getValue())) || !group.restoreCheck(entry.getKey()))
+					iterator.remove();
+				else
+					restored++;
+			}
+		}
+		Utils.logger.log(Level.INFO, "Restored " + restored + " checks and " + ended + " ended periods from check journal");
+	}
+
+	/**
+	 * Used to record a check.
+	 *
+	 * @param group The group.
+	 * @param period The period during which the student checked.
+	 * @param student The student.
+	 */
+	public synchronized void check(Group group, Period period, Student student)
+	{
+		append(CHECK, group.getName(), periodKey(period), student.getNameKey());
+	}
+
+	/**
+	 * Used to record an uncheck.
+	 *
+	 * @param group The group.
+	 * @param period The current period of the group.
+	 * @param student The student.
+	 */
+	public synchronized void uncheck(Group group, Period period, Student student)
+	{
+		append(UNCHECK, group.getName(), periodKey(period), student.getNameKey());
+	}
+
+	/**
+	 * Used to record the end of the period of a group, before giving its absents to the
+	 * {@link fr.mrcraftcod.polytech.DI.RFID.threads.AbsentsFinaliser}.
+	 *
+	 * @param group The group.
+	 * @param period The period that ended.
+	 */
+	public synchronized void end(Group group, Period period)
+	{
+		append(END, group.getName(), periodKey(period), "");
+	}
+
+	/**
+	 * Used to record that the absents of an ended period were written, forgetting its checks.
+	 *
+	 * @param group The group.
+	 * @param period The period that ended.
+	 */
+	public synchronized void close(Group group, Period period)
+	{
+		append(CLOSE, group.getName(), periodKey(period), "");
+	}
+
+	/**
+	 * Used to apply a record to the state in memory and queue it to be written by the thread.
+	 *
+	 * @param operation The operation.
+	 * @param group The group name.
+	 * @param period The period.
+	 * @param student The name key of the student.
+	 */
+	private void append(byte operation, String group, String period, String student)
+	{
+		long time = WeekClock.currentTimeMillis();
+		apply(operation, time, group, period, student);
+		pending.add(new JournalRecord(operation, time, group, period, student));
+		appendedRecords++;
+		notify();
+	}
+
+	/**
+	 * Used to append the queued records to the journal and sync them to the disk, or to compact it if enough records
+	 * were appended since the last time.
+	 */
+	private void flush()
+	{
+		synchronized(writeLock)
+		{
+			ArrayList<JournalRecord> batch;
+			synchronized(this)
+			{
+				if(pending.isEmpty())
+					return;
+				if(appendedRecords > COMPACTION_THRESHOLD)
+					batch = null;
+				else
+				{
+					batch = pending;
+					pending = new ArrayList<>();
+				}
+			}
+			if(batch == null)
+			{
+				compact();
+				return;
+			}
+			try
+			{
+				if(dos == null)
+					dos = new DataOutputStream(new BufferedOutputStream(fos = new FileOutputStream(file, true)));
+				for(JournalRecord record : batch)
+					writeRecord(dos, record.operation, record.time, record.group, record.period, record.student);
+				dos.flush();
+				fos.getFD().sync();
+			}
+			catch(IOException exception)
+			{
+				Utils.logger.log(Level.WARNING, "Failed to write check journal " + file.getAbsolutePath(), exception);
+			}
+		}
+	}
+
+	/**
+	 * Used to rewrite the journal with only the checks of the opened periods, the queued records included. The file is
+	 * replaced only once fully written.
+	 */
+	public void compact()
+	{
+		synchronized(writeLock)
+		{
+			ArrayList<JournalRecord> records = new ArrayList<>();
+			synchronized(this)
+			{
+				for(GroupChecks groupChecks : checks.values())
+				{
+					for(Map.Entry<String, Long> student : groupChecks.students.entrySet())
+						records.add(new JournalRecord(CHECK, student.getValue(), groupChecks.group, groupChecks.period, student.getKey()));
+					if(groupChecks.endTime > 0)
+						records.add(new JournalRecord(END, groupChecks.endTime, groupChecks.group, groupChecks.period, ""));
+				}
+				pending.clear();
+				appendedRecords = 0;
+			}
+			closeStream();
+			File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+			try
+			{
+				if(!file.getParentFile().exists())
+					file.getParentFile().mkdirs();
+				try(FileOutputStream tempStream = new FileOutputStream(temp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(tempStream)))
+				{
+					out.writeInt(MAGIC);
+					out.writeInt(JOURNAL_VERSION);
+					for(JournalRecord record : records)
+						writeRecord(out, record.operation, record.time, record.group, record.period, record.student);
+					out.flush();
+					tempStream.getFD().sync();
+				}
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(IOException exception)
+			{
+				Utils.logger.log(Level.WARNING, "Failed to compact check journal " + file.getAbsolutePath(), exception);
+				temp.delete();
+				// The records are only in memory now, the next flush tries again.
+				synchronized(this)
+				{
+					appendedRecords = COMPACTION_THRESHOLD + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Used to stop the thread, compact and close the journal.
+	 */
+	public void close()
+	{
+		stop();
+		synchronized(writeLock)
+		{
+			compact();
+			closeStream();
+		}
+	}
+
+	/**
+	 * Used to close the append stream, if opened. Must be called with the write lock.
+	 */
+	private void closeStream()
+	{
+		if(dos == null)
+			return;
+		try
+		{
+			dos.close();
+		}
+		catch(IOException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Failed to close check journal " + file.getAbsolutePath(), exception);
+		}
+		dos = null;
+		fos = null;
+	}
+
+	/**
+	 * Used to get the key identifying a period in the journal. It doesn't depend on the language, unlike
+	 * {@link Period#toString()}.
+	 *
+	 * @param period The period.
+	 * @return The key.
+	 */
+	private static String periodKey(Period period)
+	{
+		return period.getDay() + " " + period.getRawTimeInterval();
+	}
+
+	/**
+	 * Used to get a period back from its key.
+	 *
+	 * @param key The key, as given by {@link #periodKey(Period)}.
+	 * @return The period, null if the key isn't valid.
+	 */
+	private static Period parsePeriodKey(String key)
+	{
+		int separator = key.indexOf(' ');
+		try
+		{
+			return new Period(Integer.parseInt(key.substring(0, separator)), key.substring(separator + 1).replace(" ", ""));
+		}
+		catch(IllegalArgumentException | IndexOutOfBoundsException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Ignoring invalid period " + key + " in check journal");
+			return null;
+		}
+	}
+
+	/**
+	 * Used to write a record.
+	 *
+	 * @param out The stream to write to.
+	 * @param operation The operation.
+	 * @param time The time of the record.
+	 * @param group The group name.
+	 * @param period The period.
+	 * @param student The name key of the student.
+	 * @throws IOException If the stream can't be written.
+	 */
+	private static void writeRecord(DataOutputStream out, byte operation, long time, String group, String period, String student) throws IOException
+	{
+		out.writeByte(operation);
+		out.writeLong(time);
+		out.writeUTF(group);
+		out.writeUTF(period);
+		out.writeUTF(student);
+	}
+
+	/**
+	 * A record waiting to be written.
+	 */
+	private static final class JournalRecord
+	{
+		private final byte operation;
+		private final long time;
+		private final String group;
+		private final String period;
+		private final String student;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param operation The operation.
+		 * @param time The time of the record.
+		 * @param group The group name.
+		 * @param period The period.
+		 * @param student The name key of the student.
+		 */
+		private JournalRecord(byte operation, long time, String group, String period, String student)
+		{
+			this.operation = operation;
+			this.time = time;
+			this.group = group;
+			this.period = period;
+			this.student = student;
+		}
+	}
+
+	/**
+	 * Checks of a group during a period.
+	 */
+	private static final class GroupChecks
+	{
+		private final String group;
+		private final String period;
+		private final LinkedHashMap<String, Long> students;
+		private long endTime;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param group The group name.
+		 * @param period The period.
+		 */
+		private GroupChecks(String group, String period)
+		{
+			this.group = group;
+			this.period = period;
+			this.students = new LinkedHashMap<>();
+		}
+	}
+}
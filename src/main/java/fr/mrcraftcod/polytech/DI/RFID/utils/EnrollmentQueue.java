@@ -0,0 +1,194 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.EnrollmentListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Queue of the unknown cards waiting for a staff member to give the name of their owner.
+ * <p>
+ * The tap pipeline only adds cards to this queue, so an unknown card never stops the processing of the next ones.
+ * <p>
+ * A student enrolled while the database can't be reached is kept as a pending insert. The insert is tried again when
+ * the database is back, and until it succeeds the student is kept when the known students are replaced by the ones of
+ * the database.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class EnrollmentQueue
+{
+	private final LinkedHashMap<String, TapEvent> pendingCards;
+	private final LinkedHashMap<String, Student> pendingInserts;
+	private final CopyOnWriteArrayList<EnrollmentListener> listeners;
+
+	/**
+	 * Constructor.
+	 */
+	public EnrollmentQueue()
+	{
+		this.pendingCards = new LinkedHashMap<>();
+		this.pendingInserts = new LinkedHashMap<>();
+		this.listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Used to add an unknown card to the queue.
+	 *
+	 * @param event The tap of the unknown card.
+	 * @return True if added, false if the card was already waiting.
+	 */
+	public boolean add(TapEvent event)
+	{
+		synchronized(this)
+		{
+			String uid = Student.normaliseUID(event.getUid());
+			if(pendingCards.containsKey(uid))
+				return false;
+			pendingCards.put(uid, event);
+		}
+		fireChanged();
+		return true;
+	}
+
+	/**
+	 * Used to remove a card from the queue without enrolling it.
+	 *
+	 * @param uid The UID of the card.
+	 */
+	public void remove(String uid)
+	{
+		boolean removed;
+		synchronized(this)
+		{
+			removed = pendingCards.remove(Student.normaliseUID(uid)) != null;
+		}
+		if(removed)
+			fireChanged();
+	}
+
+	/**
+	 * Used to enroll a card, adding the student to the known ones and to the database. This can block on the database,
+	 * it shouldn't be called from the EDT. If the database can't be written, the student is kept as a pending insert.
+	 *
+	 * @param uid The UID of the card.
+	 * @param surname The surname of the student.
+	 * @param firstname The firstname of the student.
+	 * @return The new student, null if the name isn't valid.
+	 */
+	public Student enroll(String uid, String surname, String firstname)
+	{
+		Student student = new Student(uid, surname, firstname);
+		if(!student.hasValidName())
+			return null;
+		synchronized(this)
+		{
+			pendingInserts.put(student.getUidKey(), student);
+		}
+		Utils.students.add(student);
+		Utils.studentCache.put(student);
+		remove(uid);
+		if(insert(student))
+			Utils.logger.log(Level.INFO, "Enrolled card " + uid + " for " + student);
+		else
+			Utils.logger.log(Level.WARNING, "Enrolled card " + uid + " for " + student + ", the database will be updated once reachable");
+		return student;
+	}
+
+	/**
+	 * Used to add a student to the database, forgetting the pending insert if it succeeded.
+	 *
+	 * @param student The student to add.
+	 * @return True if added, false if the database couldn't be written.
+	 */
+	private boolean insert(Student student)
+	{
+		if(!Utils.sql.addStudentToDatabase(student))
+			return false;
+		synchronized(this)
+		{
+			pendingInserts.remove(student.getUidKey(), student);
+		}
+		return true;
+	}
+
+	/**
+	 * Used to try again to add to the database the students enrolled while it couldn't be reached.
+	 *
+	 * @return The number of students still waiting to be added.
+	 */
+	public int retryPendingInserts()
+	{
+		for(Student student : getPendingInserts())
+			if(!insert(student))
+				break;
+			else
+				Utils.logger.log(Level.INFO, "Added pending student " + student + " to the database");
+		synchronized(this)
+		{
+			return pendingInserts.size();
+		}
+	}
+
+	/**
+	 * Used to get the students enrolled but not yet added to the database.
+	 *
+	 * @return A copy of the students, oldest first.
+	 */
+	public synchronized ArrayList<Student> getPendingInserts()
+	{
+		return new ArrayList<>(pendingInserts.values());
+	}
+
+	/**
+	 * Used to know if some enrolled students are not yet in the database.
+	 *
+	 * @return True if there's at least one pending insert.
+	 */
+	public synchronized boolean hasPendingInserts()
+	{
+		return !pendingInserts.isEmpty();
+	}
+
+	/**
+	 * Used to get the cards waiting for enrollment, oldest first.
+	 *
+	 * @return A copy of the waiting taps.
+	 */
+	public synchronized ArrayList<TapEvent> getPendingCards()
+	{
+		return new ArrayList<>(pendingCards.values());
+	}
+
+	/**
+	 * Used to get how many cards are waiting for enrollment.
+	 *
+	 * @return The number of cards.
+	 */
+	public synchronized int size()
+	{
+		return pendingCards.size();
+	}
+
+	/**
+	 * Used to add a listener.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addListener(EnrollmentListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	/**
+	 * Used to notify the listeners.
+	 */
+	private void fireChanged()
+	{
+		for(EnrollmentListener listener : listeners)
+			listener.enrollmentQueueChanged();
+	}
+}
@@ -0,0 +1,134 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the database keeping the students in memory, used to run the program without any SQL server.
+ * <p>
+ * Each request can wait for a fixed delay, to simulate the time spent on the network.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class InMemorySQLManager extends SQLManager
+{
+	private final ConcurrentHashMap<String, Student> studentsByUID;
+	private final ConcurrentHashMap<String, Student> studentsByName;
+	private final long latency;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param students The students in the database.
+	 * @param latency The delay of each request in milliseconds.
+	 */
+	public InMemorySQLManager(Collection<Student> students, long latency)
+	{
+		super("", 0, "", "Students", "", "");
+		this.studentsByUID = new ConcurrentHashMap<>();
+		this.studentsByName = new ConcurrentHashMap<>();
+		this.latency = latency;
+		for(Student student : students)
+		{
+			studentsByUID.putIfAbsent(student.getUidKey(), student);
+			studentsByName.putIfAbsent(student.getNameKey(), student);
+		}
+	}
+
+	/**
+	 * Used to wait for the delay of a request.
+	 */
+	private void simulateLatency()
+	{
+		if(latency <= 0)
+			return;
+		try
+		{
+			TimeUnit.MILLISECONDS.sleep(latency);
+		}
+		catch(InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean addStudentToDatabase(Student student)
+	{
+		simulateLatency();
+		if(studentsByUID.putIfAbsent(student.getUidKey(), student) == null)
+			studentsByName.putIfAbsent(student.getNameKey(), student);
+		return true;
+	}
+
+	@Override
+	public Student getStudentByName(String surname, String firstname)
+	{
+		simulateLatency();
+		return studentsByName.get((surname + " " + firstname).toUpperCase());
+	}
+
+	@Override
+	public Student getStudentByUID(String uid)
+	{
+		simulateLatency();
+		return studentsByUID.get(uid);
+	}
+
+	@Override
+	public ArrayList<Student> getStudentsByUID(Collection<String> uids)
+	{
+		simulateLatency();
+		ArrayList<Student> students = new ArrayList<>();
+		for(String uid : uids)
+		{
+			Student student = studentsByUID.get(uid);
+			if(student != null)
+				students.add(student);
+		}
+		return students;
+	}
+
+	@Override
+	public ArrayList<Student> loadAllStudents()
+	{
+		simulateLatency();
+		ArrayList<Student> students = new ArrayList<>(studentsByUID.values());
+		students.sort(null);
+		return students;
+	}
+
+	@Override
+	public ResultSet sendQueryRequest(String request)
+	{
+		return null;
+	}
+
+	@Override
+	public int sendUpdateRequest(String request)
+	{
+		return 0;
+	}
+
+	@Override
+	public int createBaseTable()
+	{
+		return 0;
+	}
+
+	@Override
+	public boolean login()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean isConnected()
+	{
+		return true;
+	}
+}
@@ -0,0 +1,32 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.TapListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import fr.mrcraftcod.polytech.DI.RFID.objects.TapEvent;
+import java.util.logging.Level;
+
+/**
+ * Listener reporting the taps in the logs, used when there is no interface.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class LoggingTapListener implements TapListener
+{
+	@Override
+	public void studentTapped(TapEvent event, Student student, boolean checked)
+	{
+		if(checked)
+			Utils.logger.log(Level.INFO, student + " checked on reader " + event.getReaderName());
+	}
+
+	@Override
+	public void unknownCardTapped(TapEvent event)
+	{
+		Utils.logger.log(Level.WARNING, "Unknown card " + event.getUid() + " on reader " + event.getReaderName());
+	}
+
+	@Override
+	public void cardRemoved(TapEvent event)
+	{
+	}
+}
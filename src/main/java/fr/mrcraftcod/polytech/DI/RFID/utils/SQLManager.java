@@ -5,7 +5,10 @@ import com.mysql.jdbc.exceptions.jdbc4.MySQLNonTransientConnectionException;
 import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 /**
@@ -18,6 +21,7 @@ public class SQLManager
 	public final static String UID_LABEL = "CSN";
 	public final static String FIRSTNAME_LABEL = "Firstname";
 	public final static String LASTNAME_LABEL = "Lastname";
+	private final static int UIDS_PER_REQUEST = 500;
 	private String tableName;
 	private String databaseURL;
 	private int port;
@@ -26,10 +30,11 @@ public class SQLManager
 	private String password;
 	private Connection connection;
 	private Date lastTimeConnect;
-	private boolean isLogging;
+	private volatile boolean isLogging;
+	private final ReentrantLock lock = new ReentrantLock();
 
 	/**
-	 * Constructor.
+	 * Constructor. The connection isn't established here, see {@link #login()}.
 	 *
 	 * @param databaseURL The URL of the database.
 	 * @param port The port of the database.
@@ -46,9 +51,7 @@ public class SQLManager
 		this.tableName = tableName;
 		this.user = user;
 		this.password = password;
-		login();
-		Utils.logger.log(Level.INFO, "Initializing SQL connection...");
-		createBaseTable();
+		this.lastTimeConnect = new Date();
 	}
 
 	/**
@@ -75,10 +78,19 @@ public class SQLManager
 	 * Used to add a student into the database.
 	 *
 	 * @param student The student to add.
+	 * @return True if the student is in the database, false if the request failed.
 	 */
-	public void addStudentToDatabase(Student student)
+	public boolean addStudentToDatabase(Student student)
 	{
-		sendUpdateRequest("INSERT INTO " + this.tableName + " (" + UID_LABEL + "," + FIRSTNAME_LABEL + "," + LASTNAME_LABEL + ") VALUES(\"" + student.getRawUid() + "\",\"" + student.getFirstName() + "\",\"" + student.getLastname() + "\")");
+		lock.lock();
+		try
+		{
+			return sendUpdateRequest("INSERT INTO " + this.tableName + " (" + UID_LABEL + "," + FIRSTNAME_LABEL + "," + LASTNAME_LABEL + ") VALUES(\"" + student.getRawUid() + "\",\"" + student.getFirstName() + "\",\"" + student.getLastname() + "\")", true) >= 0;
+		}
+		finally
+		{
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -130,6 +142,44 @@ public class SQLManager
 		return null;
 	}
 
+	/**
+	 * Used to retrieve several students from the database by their UIDs, with as few requests as possible. The UIDs
+	 * are given as parameters of the requests, never written into them.
+	 *
+	 * @param uids The UIDs of the students.
+	 * @return The students found, the unknown UIDs being ignored.
+	 */
+	public ArrayList<Student> getStudentsByUID(Collection<String> uids)
+	{
+		ArrayList<Student> students = new ArrayList<>();
+		ArrayList<String> list = new ArrayList<>(uids);
+		for(int i = 0; i < list.size(); i += UIDS_PER_REQUEST)
+		{
+			List<String> batch = list.subList(i, Math.min(list.size(), i + UIDS_PER_REQUEST));
+			StringBuilder request = new StringBuilder("SELECT " + UID_LABEL + "," + LASTNAME_LABEL + ", " + FIRSTNAME_LABEL + " FROM " + this.tableName + " WHERE " + UID_LABEL + " IN (");
+			for(int j = 0; j < batch.size(); j++)
+				request.append(j == 0 ? "?" : ",?");
+			lock.lock();
+			try
+			{
+				ResultSet result = sendPreparedQueryRequest(request.append(");").toString(), batch, true);
+				if(result == null)
+					continue;
+				while(result.next())
+					students.add(new Student(result.getString(UID_LABEL), result.getString(LASTNAME_LABEL), result.getString(FIRSTNAME_LABEL)));
+			}
+			catch(SQLException exception)
+			{
+				Utils.logger.log(Level.WARNING, "", exception);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+		return students;
+	}
+
 	/**
 	 * Used to send a query request to the database.
 	 *
@@ -138,9 +188,17 @@ public class SQLManager
 	 *
 	 * @see ResultSet
 	 */
-	public synchronized ResultSet sendQueryRequest(String request)
+	public ResultSet sendQueryRequest(String request)
 	{
-		return sendQueryRequest(request, true);
+		lock.lock();
+		try
+		{
+			return sendQueryRequest(request, true);
+		}
+		finally
+		{
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -149,9 +207,17 @@ public class SQLManager
 	 * @param request The request to send.
 	 * @return How many lines were modified by the request.
 	 */
-	public synchronized int sendUpdateRequest(String request)
+	public int sendUpdateRequest(String request)
 	{
-		return sendUpdateRequest(request, true);
+		lock.lock();
+		try
+		{
+			return Math.max(0, sendUpdateRequest(request, true));
+		}
+		finally
+		{
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -232,19 +298,55 @@ public class SQLManager
 		return result;
 	}
 
+	/**
+	 * Used to send a query request with parameters to the database.
+	 *
+	 * @param request The request to send, with a '?' for each parameter.
+	 * @param parameters The values of the parameters, in order.
+	 * @param retry Should retry to send the request another time if it failed?
+	 * @return The result of the query, null if it failed.
+	 *
+	 * @see PreparedStatement
+	 */
+	private ResultSet sendPreparedQueryRequest(String request, List<String> parameters, boolean retry)
+	{
+		if(this.connection == null)
+			return null;
+		Utils.logger.log(Level.INFO, "Sending MYSQL request...: " + request + " " + parameters);
+		ResultSet result = null;
+		try
+		{
+			PreparedStatement statement = this.connection.prepareStatement(request);
+			for(int i = 0; i < parameters.size(); i++)
+				statement.setString(i + 1, parameters.get(i));
+			result = statement.executeQuery();
+		}
+		catch(MySQLNonTransientConnectionException e)
+		{
+			login();
+			if(retry)
+				return sendPreparedQueryRequest(request, parameters, false);
+		}
+		catch(SQLException exception)
+		{
+			Utils.logger.log(Level.WARNING, "SQL ERROR when sending " + request, exception);
+		}
+		return result;
+	}
+
 	/**
 	 * Used to send an update request to the database.
 	 *
 	 * @param request The request to send.
 	 * @param retry Should retry to send the request another time if it failed?
-	 * @return How many lines were modified by the request.
+	 * @return How many lines were modified by the request, -1 if it failed.
 	 */
 	private int sendUpdateRequest(String request, boolean retry)
 	{
 		if(this.connection == null)
-			return 0;
+			return -1;
 		Utils.logger.log(Level.INFO, "Sending MYSQL update...: " + request);
-		int result = 0;
+		int result = -1;
 		try
 		{
 			Statement statement = this.connection.createStatement();
@@ -259,6 +361,7 @@ public class SQLManager
 		catch(MySQLIntegrityConstraintViolationException exception)
 		{
 			Utils.logger.log(Level.WARNING, "SQL ERROR when sending " + request + " -> Already got the student");
+			result = 0;
 		}
 		catch(SQLException exception)
 		{
@@ -270,23 +373,34 @@ public class SQLManager
 	/**
 	 * Used to get all the students from the database.
 	 *
-	 * @return A list of the students.
+	 * @return A list of the students, empty if they couldn't be read.
 	 */
 	public ArrayList<Student> getAllStudents()
 	{
-		ArrayList<Student> students = new ArrayList<>();
+		ArrayList<Student> students = loadAllStudents();
+		return students == null ? new ArrayList<>() : students;
+	}
+
+	/**
+	 * Used to read all the students from the database, telling a failed request apart from an empty table.
+	 *
+	 * @return A list of the students, null if they couldn't be read.
+	 */
+	public ArrayList<Student> loadAllStudents()
+	{
 		ResultSet result = sendQueryRequest("SELECT " + UID_LABEL + "," + LASTNAME_LABEL + ", " + FIRSTNAME_LABEL + " FROM " + this.tableName + " ORDER BY " + LASTNAME_LABEL + "," + FIRSTNAME_LABEL + ";");
+		if(result == null)
+			return null;
+		ArrayList<Student> students = new ArrayList<>();
 		try
 		{
 			while(result.next())
 				students.add(new Student(result.getString(UID_LABEL), result.getString(LASTNAME_LABEL), result.getString(FIRSTNAME_LABEL)));
 		}
-		catch(NullPointerException e)
-		{
-		}
 		catch(Exception exception)
 		{
 			Utils.logger.log(Level.WARNING, "", exception);
+			return null;
 		}
 		return students;
 	}
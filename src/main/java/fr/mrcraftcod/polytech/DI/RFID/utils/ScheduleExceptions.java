@@ -0,0 +1,370 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Exceptions to the weekly periods of the groups on some dates, like holidays or exams.
+ * <p>
+ * They are read from a text file, one exception per line, with the fields separated by semicolons:
+ * <ul>
+ * <li><b>cancel;</b><i>dd/MM/yyyy</i><b>;</b><i>group</i>: no period on this day for the group, or for every group if
+ * the group is empty.</li>
+ * <li><b>session;</b><i>dd/MM/yyyy</i><b>;</b><i>group</i><b>;</b><i>xx</i><b>h</b><i>xx</i><b>-</b><i>yy</i><b>h</b><i>yy</i>:
+ * a period happening only on this day for the group, even if the day is cancelled.</li>
+ * </ul>
+ * A date can also be a range, like <b>21/12/2026-03/01/2027</b>. Lines starting with # are ignored.
+ * <p>
+ * The exceptions are compiled into a table with one entry per day of the academic year, from the 1st of September, so
+ * knowing the exceptions of a day is one array access. The tables of the last {@value #MAX_TABLES} academic years used
+ * are kept, so going back and forth between two years, like when replaying old taps, doesn't compile them again. The
+ * file is read again when it is modified.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class ScheduleExceptions
+{
+	private static final int ACADEMIC_YEAR_FIRST_MONTH = 9;
+	private static final int MAX_TABLES = 4;
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("d/M/yyyy");
+	private final File file;
+	private final ArrayList<Rule> rules;
+	private final LinkedHashMap<Integer, Table> tables;
+	private long lastModified;
+	private volatile Table table;
+
+	/**
+	 * Constructor. Reads the file, if it exists.
+	 *
+	 * @param file The file of the exceptions.
+	 */
+	public ScheduleExceptions(File file)
+	{
+		this.file = file;
+		this.rules = new ArrayList<>();
+		this.tables = new LinkedHashMap<Integer, Table>(MAX_TABLES, 0.75f, true)
+		{
+			private static final long serialVersionUID = 4920875361203745916L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Table> eldest)
+			{
+				return size() > MAX_TABLES;
+			}
+		};
+		load();
+	}
+
+	/**
+	 * Used to read the file again if it was modified since it was last read.
+	 *
+	 * @return True if it was read again, false if not modified.
+	 */
+	public synchronized boolean reloadIfModified()
+	{
+		if(file.lastModified() == lastModified)
+			return false;
+		load();
+		return true;
+	}
+
+	/**
+	 * Used to read the exceptions from the file.
+	 */
+	private synchronized void load()
+	{
+		rules.clear();
+		tables.clear();
+		table = null;
+		lastModified = file.lastModified();
+		if(!file.exists())
+			return;
+		List<String> lines = Utils.readTextFile(file);
+		for(int i = 0; i < lines.size(); i++)
+		{
+			String line = lines.get(i).trim();
+			if(line.isEmpty() || line.startsWith("#"))
+				continue;
+			try
+			{
+				rules.add(parseRule(line));
+			}
+			catch(IllegalArgumentException | DateTimeParseException exception)
+			{
+				Utils.logger.log(Level.WARNING, "Ignoring line " + (i + 1) + " of " + file.getAbsolutePath() + ": " + exception.getMessage());
+			}
+		}
+		Utils.logger.log(Level.INFO, "Loaded " + rules.size() + " schedule exceptions");
+	}
+
+	/**
+	 * Used to parse a line of the file.
+	 *
+	 * @param line The line.
+	 * @return The exception.
+	 * @throws IllegalArgumentException If the line isn't valid.
+	 * @throws DateTimeParseException If a date isn't valid.
+	 */
+	private static Rule parseRule(String line) throws IllegalArgumentException, DateTimeParseException
+	{
+		String[] fields = line.split(";", -1);
+		if(fields.length < 2)
+			throw new IllegalArgumentException("Missing fields");
+		String[] dates = fields[1].trim().split("-");
+		LocalDate first = LocalDate.parse(dates[0].trim(), DATE_FORMAT);
+		LocalDate last = dates.length > 1 ? LocalDate.parse(dates[1].trim(), DATE_FORMAT) : first;
+		if(last.isBefore(first))
+			throw new IllegalArgumentException("The dates aren't in a valid order");
+		String group = fields.length > 2 ? fields[2].trim() : "";
+		switch(fields[0].trim().toLowerCase())
+		{
+			case "cancel":
+				return new Rule(first.toEpochDay(), last.toEpochDay(), group.isEmpty() ? null : group, null);
+			case "session":
+				if(group.isEmpty() || fields.length < 4)
+					throw new IllegalArgumentException("A session needs a group and a time");
+				// Checks the time now, the periods of each day are created when compiling.
+				new Period(Period.MONDAY, fields[3].trim());
+				return new Rule(first.toEpochDay(), last.toEpochDay(), group, fields[3].trim());
+			default:
+				throw new IllegalArgumentException("Unknown exception type " + fields[0]);
+		}
+	}
+
+	/**
+	 * Used to know if there is no exception at all.
+	 *
+	 * @return True if empty, false if not.
+	 */
+	public synchronized boolean isEmpty()
+	{
+		return rules.isEmpty();
+	}
+
+	/**
+	 * Used to get the exceptions of a day.
+	 *
+	 * @param epochDay The day, as given by {@link WeekClock#epochDay(long)}.
+	 * @return The exceptions, null if there is none this day.
+	 */
+	public Day getDay(long epochDay)
+	{
+		Table current = table;
+		if(current == null || epochDay < current.firstDay || epochDay >= current.firstDay + current.days.length)
+			current = compile(epochDay);
+		return current.days[(int) (epochDay - current.firstDay)];
+	}
+
+	/**
+	 * Used to get the table of the academic year containing a day, compiling it if it isn't kept.
+	 *
+	 * @param epochDay The day.
+	 * @return The table.
+	 */
+	private synchronized Table compile(long epochDay)
+	{
+		Table current = table;
+		if(current != null && epochDay >= current.firstDay && epochDay < current.firstDay + current.days.length)
+			return current;
+		LocalDate date = LocalDate.ofEpochDay(epochDay);
+		int year = date.getMonthValue() >= ACADEMIC_YEAR_FIRST_MONTH ? date.getYear() : date.getYear() - 1;
+		current = tables.get(year);
+		if(current != null)
+		{
+			table = current;
+			return current;
+		}
+		long firstDay = LocalDate.of(year, ACADEMIC_YEAR_FIRST_MONTH, 1).toEpochDay();
+		Day[] days = new Day[(int) (LocalDate.of(year + 1, ACADEMIC_YEAR_FIRST_MONTH, 1).toEpochDay() - firstDay)];
+		for(Rule rule : rules)
+			for(long day = Math.max(rule.firstDay, firstDay); day <= rule.lastDay && day < firstDay + days.length; day++)
+			{
+				int index = (int) (day - firstDay);
+				if(days[index] == null)
+					days[index] = new Day();
+				if(rule.time == null)
+					days[index].cancel(rule.group);
+				else
+					days[index].addSession(rule.group, new Period(Period.MONDAY << (LocalDate.ofEpochDay(day).getDayOfWeek().getValue() - 1), rule.time));
+			}
+		Table compiled = new Table(firstDay, days);
+		tables.put(year, compiled);
+		table = compiled;
+		return compiled;
+	}
+
+	/**
+	 * The exceptions of a day.
+	 */
+	public static class Day
+	{
+		private boolean cancelledForAll;
+		private final HashSet<String> cancelledGroups;
+		private final HashMap<String, ArrayList<Period>> sessions;
+
+		/**
+		 * Constructor.
+		 */
+		private Day()
+		{
+			this.cancelledGroups = new HashSet<>();
+			this.sessions = new HashMap<>();
+		}
+
+		/**
+		 * Used to cancel the periods of a group.
+		 *
+		 * @param group The name of the group, null for every group.
+		 */
+		private void cancel(String group)
+		{
+			if(group == null)
+				cancelledForAll = true;
+			else
+				cancelledGroups.add(group);
+		}
+
+		/**
+		 * Used to add a session to a group.
+		 *
+		 * @param group The name of the group.
+		 * @param period The session.
+		 */
+		private void addSession(String group, Period period)
+		{
+			ArrayList<Period> groupSessions = sessions.get(group);
+			if(groupSessions == null)
+				sessions.put(group, groupSessions = new ArrayList<>());
+			for(Period session : groupSessions)
+				if(session.isOverlapped(period))
+				{
+					Utils.logger.log(Level.WARNING, "Session " + period.getRawTimeInterval() + " of group " + group + " overlaps another one and is ignored");
+					return;
+				}
+			groupSessions.add(period);
+		}
+
+		/**
+		 * Used to know if the weekly periods of a group are cancelled this day.
+		 *
+		 * @param group The name of the group.
+		 * @return True if cancelled, false if not.
+		 */
+		public boolean isCancelled(String group)
+		{
+			return cancelledForAll || cancelledGroups.contains(group);
+		}
+
+		/**
+		 * Used to get the session of a group at a minute of this day.
+		 *
+		 * @param group The name of the group.
+		 * @param minuteOfWeek The minute of the week.
+		 * @return The session, null if none.
+		 */
+		public Period getSession(String group, int minuteOfWeek)
+		{
+			ArrayList<Period> groupSessions = sessions.get(group);
+			if(groupSessions != null)
+				for(Period session : groupSessions)
+					if(session.contains(minuteOfWeek))
+						return session;
+			return null;
+		}
+
+		/**
+		 * Used to get the sessions of every group at a minute of this day.
+		 *
+		 * @param minuteOfWeek The minute of the week.
+		 * @return The sessions by the name of their group.
+		 */
+		public HashMap<String, Period> getSessions(int minuteOfWeek)
+		{
+			HashMap<String, Period> result = new HashMap<>();
+			for(Map.Entry<String, ArrayList<Period>> groupSessions : sessions.entrySet())
+				for(Period session : groupSessions.getValue())
+					if(session.contains(minuteOfWeek))
+						result.put(groupSessions.getKey(), session);
+			return result;
+		}
+
+		/**
+		 * Used to get in how many minutes a session will start or end this day.
+		 *
+		 * @param minuteOfWeek The current minute of the week.
+		 * @return The number of minutes, -1 if no session starts or ends later this day.
+		 */
+		public int getMinutesToNextBoundary(int minuteOfWeek)
+		{
+			int minuteOfDay = minuteOfWeek % WeekClock.MINUTES_PER_DAY;
+			int minutes = Integer.MAX_VALUE;
+			for(ArrayList<Period> groupSessions : sessions.values())
+				for(Period session : groupSessions)
+				{
+					if(session.getStartMinuteOfDay() > minuteOfDay)
+						minutes = Math.min(minutes, session.getStartMinuteOfDay() - minuteOfDay);
+					if(session.getEndMinuteOfDay() > minuteOfDay)
+						minutes = Math.min(minutes, session.getEndMinuteOfDay() - minuteOfDay);
+				}
+			return minutes == Integer.MAX_VALUE ? -1 : minutes;
+		}
+	}
+
+	/**
+	 * An exception read from the file.
+	 */
+	private static class Rule
+	{
+		private final long firstDay;
+		private final long lastDay;
+		private final String group;
+		private final String time;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param firstDay The first day, included.
+		 * @param lastDay The last day, included.
+		 * @param group The name of the group, null for every group.
+		 * @param time The time of the session, null to cancel the periods.
+		 */
+		private Rule(long firstDay, long lastDay, String group, String time)
+		{
+			this.firstDay = firstDay;
+			this.lastDay = lastDay;
+			this.group = group;
+			this.time = time;
+		}
+	}
+
+	/**
+	 * The exceptions of each day of an academic year.
+	 */
+	private static class Table
+	{
+		private final long firstDay;
+		private final Day[] days;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param firstDay The first day of the academic year.
+		 * @param days The exceptions of each day, null when there is none.
+		 */
+		private Table(long firstDay, Day[] days)
+		{
+			this.firstDay = firstDay;
+			this.days = days;
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded read-through cache of the students resolved from the database.
+ * <p>
+ * Sits between {@link Utils} and {@link SQLManager}: a lookup that misses the cache is sent to the database and the
+ * result is kept, the least recently used student being evicted when the cache is full. An unknown UID is only
+ * remembered for {@value #UNKNOWN_TTL}ms, so an unknown card tapped again and again doesn't query the database each
+ * time, while a card enrolled from another computer is found after at most this delay.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class StudentCache
+{
+	private static final long UNKNOWN_TTL = 60000;
+	private final SQLManager sql;
+	private final int maxSize;
+	private final LinkedHashMap<String, Student> studentsByUID;
+	private final LinkedHashMap<String, Long> unknownUIDs;
+	private final HashMap<String, String> uidsByName;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sql The database to read through.
+	 * @param maxSize The maximum number of students kept in the cache.
+	 * @throws IllegalArgumentException If the size isn't strictly positive.
+	 */
+	public StudentCache(SQLManager sql, int maxSize) throws IllegalArgumentException
+	{
+		if(maxSize < 1)
+			throw new IllegalArgumentException("The cache size should be positive (was " + maxSize + ")");
+		this.sql = sql;
+		this.maxSize = maxSize;
+		this.uidsByName = new HashMap<>();
+		this.unknownUIDs = new LinkedHashMap<String, Long>()
+		{
+			private static final long serialVersionUID = -6017324825376406813L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+			{
+				return size() > StudentCache.this.maxSize;
+			}
+		};
+		this.studentsByUID = new LinkedHashMap<String, Student>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 2718764032918839310L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Student> eldest)
+			{
+				if(size() <= StudentCache.this.maxSize)
+					return false;
+				uidsByName.remove(eldest.getValue().getNameKey());
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Used to get a student by his UID, asking the database if he isn't cached and wasn't found unknown recently.
+	 *
+	 * @param uid The UID of the student, normalised by {@link Student#normaliseUID(String)}.
+	 * @return The student or null if unknown.
+	 */
+	public Student getStudentByUID(String uid)
+	{
+		synchronized(this)
+		{
+			Student student = studentsByUID.get(uid);
+			Long unknownTime = student == null ? unknownUIDs.get(uid) : null;
+			if(student != null || unknownTime != null && System.currentTimeMillis() - unknownTime < UNKNOWN_TTL)
+			{
+				hits++;
+				return student;
+			}
+			misses++;
+		}
+		Student student = sql.getStudentByUID(uid);
+		if(student != null)
+			put(student);
+		else if(sql.isConnected())
+			synchronized(this)
+			{
+				unknownUIDs.put(uid, System.currentTimeMillis());
+			}
+		return student;
+	}
+
+	/**
+	 * Used to get a student by his name, asking the database if he isn't cached.
+	 *
+	 * @param surname The surname of the student.
+	 * @param firstname The firstname of the student.
+	 * @return The student or null if unknown.
+	 */
+	public Student getStudentByName(String surname, String firstname)
+	{
+		synchronized(this)
+		{
+			String uid = uidsByName.get((surname + " " + firstname).toUpperCase());
+			Student student = uid == null ? null : studentsByUID.get(uid);
+			if(student != null)
+			{
+				hits++;
+				return student;
+			}
+			misses++;
+		}
+		Student student = sql.getStudentByName(surname, firstname);
+		if(student != null)
+			put(student);
+		return student;
+	}
+
+	/**
+	 * Used to add a student into the cache.
+	 *
+	 * @param student The student to add.
+	 */
+	public synchronized void put(Student student)
+	{
+		unknownUIDs.remove(student.getUidKey());
+		Student previous = studentsByUID.put(student.getUidKey(), student);
+		if(previous != null)
+			uidsByName.remove(previous.getNameKey());
+		uidsByName.put(student.getNameKey(), student.getUidKey());
+	}
+
+	/**
+	 * Used to empty the cache, for example when the database changed.
+	 */
+	public synchronized void clear()
+	{
+		studentsByUID.clear();
+		uidsByName.clear();
+		unknownUIDs.clear();
+	}
+
+	/**
+	 * Used to get the number of students in the cache.
+	 *
+	 * @return The size.
+	 */
+	public synchronized int size()
+	{
+		return studentsByUID.size();
+	}
+
+	/**
+	 * Used to get how many lookups were answered by the cache.
+	 *
+	 * @return The hit count.
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * Used to get how many lookups had to be sent to the database.
+	 *
+	 * @return The miss count.
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * Used to get how many students were evicted because the cache was full.
+	 *
+	 * @return The eviction count.
+	 */
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return "StudentCache[" + studentsByUID.size() + "/" + maxSize + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+}
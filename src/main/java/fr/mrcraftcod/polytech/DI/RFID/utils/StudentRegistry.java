@@ -0,0 +1,207 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import java.util.*;
+
+/**
+ * Thread-safe registry of the known students.
+ * <p>
+ * The students are identified by the UID of their card, so a student may be known several times with different cards.
+ * The names are only a secondary index, giving the first student known with a name.
+ * <p>
+ * Reads work on an immutable snapshot published through a volatile field, so they never lock nor copy. Writers are
+ * serialized and publish a new snapshot once their modification is done. A {@link UIDBloomFilter} over the known UIDs
+ * allows to reject unknown cards before any lookup.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class StudentRegistry implements Iterable<Student>
+{
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+	private volatile Snapshot snapshot;
+	private volatile UIDBloomFilter uidFilter;
+
+	/**
+	 * Constructor.
+	 */
+	public StudentRegistry()
+	{
+		this.snapshot = new Snapshot(new ArrayList<>());
+		this.uidFilter = new UIDBloomFilter(0, FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param students The students to start with.
+	 */
+	public StudentRegistry(Collection<Student> students)
+	{
+		this();
+		addAll(students);
+	}
+
+	/**
+	 * Used to get a student by his UID.
+	 *
+	 * @param uid The UID of the student, normalised by {@link Student#normaliseUID(String)}.
+	 * @return The student or null if unknown.
+	 */
+	public Student getByUID(String uid)
+	{
+		return snapshot.studentsByUID.get(uid);
+	}
+
+	/**
+	 * Used to know if a UID may be known, without looking in the indexes.
+	 *
+	 * @param uid The UID of the student, normalised by {@link Student#normaliseUID(String)}.
+	 * @return False if the UID is surely unknown, true if it may be known.
+	 */
+	public boolean mightContainUID(String uid)
+	{
+		return uidFilter.mightContain(uid);
+	}
+
+	/**
+	 * Used to get a student by his name.
+	 *
+	 * @param name The name of the student, case insensitive.
+	 * @return The first student known with this name, or null if unknown.
+	 */
+	public Student getByName(String name)
+	{
+		return snapshot.studentsByName.get(name.toUpperCase());
+	}
+
+	/**
+	 * Used to get the current students. The returned list will not be modified by later writes.
+	 *
+	 * @return An unmodifiable list of the students.
+	 */
+	public List<Student> getStudents()
+	{
+		return snapshot.students;
+	}
+
+	/**
+	 * Used to get how many students are known.
+	 *
+	 * @return The number of students.
+	 */
+	public int size()
+	{
+		return snapshot.students.size();
+	}
+
+	/**
+	 * Used to add a student.
+	 *
+	 * @param student The student to add.
+	 * @return True if added, false if null or if its UID is already known.
+	 */
+	public synchronized boolean add(Student student)
+	{
+		return addAll(Collections.singletonList(student)) > 0;
+	}
+
+	/**
+	 * Used to add several students, the ones whose UID is already known being ignored.
+	 *
+	 * @param students The students to add.
+	 * @return How many students were added.
+	 */
+	public synchronized int addAll(Collection<Student> students)
+	{
+		Snapshot current = snapshot;
+		ArrayList<Student> list = new ArrayList<>(current.students);
+		HashSet<String> uids = new HashSet<>(current.studentsByUID.keySet());
+		int added = 0;
+		for(Student student : students)
+			if(student != null && uids.add(student.getUidKey()))
+			{
+				list.add(student);
+				added++;
+			}
+		if(added > 0)
+		{
+			if(list.size() > uidFilter.getCapacity())
+				rebuildFilter(list);
+			else
+				for(int i = list.size() - added; i < list.size(); i++)
+					uidFilter.add(list.get(i).getUidKey());
+			snapshot = new Snapshot(list);
+		}
+		return added;
+	}
+
+	/**
+	 * Used to replace all the known students, for example by the ones of the database. The UID filter is rebuilt.
+	 *
+	 * @param students The new students, the ones with the same UID as a previous one being ignored.
+	 */
+	public synchronized void replaceAll(Collection<Student> students)
+	{
+		ArrayList<Student> list = new ArrayList<>(students.size());
+		HashSet<String> uids = new HashSet<>();
+		for(Student student : students)
+			if(student != null && uids.add(student.getUidKey()))
+				list.add(student);
+		rebuildFilter(list);
+		snapshot = new Snapshot(list);
+	}
+
+	/**
+	 * Used to rebuild the UID filter from the known students, sized with some room for new ones.
+	 */
+	public synchronized void rebuildFilter()
+	{
+		rebuildFilter(snapshot.students);
+	}
+
+	/**
+	 * Used to rebuild the UID filter.
+	 *
+	 * @param students The students to put in the filter.
+	 */
+	private void rebuildFilter(List<Student> students)
+	{
+		UIDBloomFilter filter = new UIDBloomFilter(students.size() * 2, FALSE_POSITIVE_RATE);
+		for(Student student : students)
+			filter.add(student.getUidKey());
+		uidFilter = filter;
+	}
+
+	@Override
+	public Iterator<Student> iterator()
+	{
+		return snapshot.students.iterator();
+	}
+
+	/**
+	 * Immutable state of the registry.
+	 */
+	private static final class Snapshot
+	{
+		private final List<Student> students;
+		private final HashMap<String, Student> studentsByUID;
+		private final HashMap<String, Student> studentsByName;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param students The students, the list must not be modified afterwards.
+		 */
+		private Snapshot(ArrayList<Student> students)
+		{
+			this.students = Collections.unmodifiableList(students);
+			this.studentsByUID = new HashMap<>(students.size() * 2);
+			this.studentsByName = new HashMap<>(students.size() * 2);
+			for(Student student : students)
+			{
+				this.studentsByUID.putIfAbsent(student.getUidKey(), student);
+				this.studentsByName.putIfAbsent(student.getNameKey(), student);
+			}
+		}
+	}
+}
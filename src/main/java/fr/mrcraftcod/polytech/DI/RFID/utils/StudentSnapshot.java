@@ -0,0 +1,126 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.logging.Level;
+
+/**
+ * Local copy of the known students, used to start without waiting for the database.
+ * <p>
+ * The file starts with a magic number, a version and the number of students, followed for each student by his UID,
+ * surname and firstname as length-prefixed UTF-8 strings.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class StudentSnapshot
+{
+	private static final int MAGIC = 0x52465354;
+	private static final int SNAPSHOT_VERSION = 1;
+
+	/**
+	 * Used to read the students saved in a snapshot file.
+	 *
+	 * @param file The snapshot file.
+	 * @return The students, an empty list if the file doesn't exist or can't be read.
+	 */
+	public static ArrayList<Student> load(File file)
+	{
+		ArrayList<Student> students = new ArrayList<>();
+		if(!file.exists())
+			return students;
+		long start = System.nanoTime();
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt() != MAGIC || buffer.getInt() != SNAPSHOT_VERSION)
+			{
+				Utils.logger.log(Level.WARNING, "Ignoring students snapshot " + file.getAbsolutePath() + ", unknown format");
+				return students;
+			}
+			int count = buffer.getInt();
+			students.ensureCapacity(count);
+			for(int i = 0; i < count; i++)
+				students.add(new Student(readString(buffer), readString(buffer), readString(buffer)));
+		}
+		catch(Exception exception)
+		{
+			Utils.logger.log(Level.WARNING, "Failed to read students snapshot " + file.getAbsolutePath(), exception);
+			students.clear();
+		}
+		Utils.logger.log(Level.INFO, "Loaded " + students.size() + " students from snapshot in " + (System.nanoTime() - start) / 1000000 + "ms");
+		return students;
+	}
+
+	/**
+	 * Used to save students into a snapshot file. The file is replaced only once fully written, and one save is done at
+	 * a time.
+	 *
+	 * @param file The snapshot file.
+	 * @param students The students to save.
+	 */
+	public static synchronized void save(File file, Collection<Student> students)
+	{
+		File temp = null;
+		try
+		{
+			if(!file.getParentFile().exists())
+				file.getParentFile().mkdirs();
+			temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp").toFile();
+			try(DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+			{
+				dos.writeInt(MAGIC);
+				dos.writeInt(SNAPSHOT_VERSION);
+				dos.writeInt(students.size());
+				for(Student student : students)
+				{
+					writeString(dos, student.getUid());
+					writeString(dos, student.getLastname());
+					writeString(dos, student.getFirstName());
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException exception)
+		{
+			Utils.logger.log(Level.WARNING, "Failed to write students snapshot " + file.getAbsolutePath(), exception);
+			if(temp != null)
+				temp.delete();
+		}
+	}
+
+	/**
+	 * Used to read a length-prefixed string.
+	 *
+	 * @param buffer The buffer to read from.
+	 * @return The string.
+	 */
+	private static String readString(ByteBuffer buffer)
+	{
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Used to write a length-prefixed string.
+	 *
+	 * @param dos The stream to write to.
+	 * @param string The string to write.
+	 * @throws IOException If the stream can't be written.
+	 */
+	private static void writeString(DataOutputStream dos, String string) throws IOException
+	{
+		byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+		dos.writeShort(bytes.length);
+		dos.write(bytes);
+	}
+}
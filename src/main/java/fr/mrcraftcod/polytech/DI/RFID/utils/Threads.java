@@ -0,0 +1,83 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Used to create the threads of the program, as platform threads or as virtual threads.
+ * <p>
+ * In virtual mode, the daemon threads doing blocking I/O (database requests, log writes, tap processing) are virtual
+ * threads, so many of them can wait on the database or the disk without a large pool of platform threads. Threads that
+ * must keep the JVM alive stay platform threads, virtual threads being always daemon.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class Threads
+{
+	private static volatile boolean virtual;
+
+	/**
+	 * Used to set if the virtual threads should be used. Must be called before starting the threads.
+	 *
+	 * @param virtual True to use virtual threads, false to use platform threads.
+	 */
+	public static void setVirtual(boolean virtual)
+	{
+		Threads.virtual = virtual;
+	}
+
+	/**
+	 * Used to know if the virtual threads are used.
+	 *
+	 * @return True if used, false if not.
+	 */
+	public static boolean isVirtual()
+	{
+		return virtual;
+	}
+
+	/**
+	 * Used to create a thread, without starting it.
+	 *
+	 * @param name The name of the thread.
+	 * @param daemon Should the thread be a daemon? Non daemon threads are always platform threads.
+	 * @param task The task of the thread.
+	 * @return The thread.
+	 */
+	public static Thread newThread(String name, boolean daemon, Runnable task)
+	{
+		if(virtual && daemon)
+			return Thread.ofVirtual().name(name).unstarted(task);
+		Thread thread = new Thread(task);
+		thread.setName(name);
+		thread.setDaemon(daemon);
+		return thread;
+	}
+
+	/**
+	 * Used to create and start a thread.
+	 *
+	 * @param name The name of the thread.
+	 * @param daemon Should the thread be a daemon? Non daemon threads are always platform threads.
+	 * @param task The task of the thread.
+	 * @return The started thread.
+	 */
+	public static Thread start(String name, boolean daemon, Runnable task)
+	{
+		Thread thread = newThread(name, daemon, task);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Used to create an executor running its tasks one after the other, in the order they were given, in a virtual
+	 * thread.
+	 *
+	 * @param name The name of the thread.
+	 * @return The executor, null if the virtual threads aren't used.
+	 */
+	public static ExecutorService newSerialExecutor(String name)
+	{
+		return virtual ? Executors.newSingleThreadExecutor(Thread.ofVirtual().name(name).factory()) : null;
+	}
+}
@@ -0,0 +1,109 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over card UIDs, telling without any allocation if a UID may be known.
+ * <p>
+ * A negative answer is always right, a positive one may be wrong with the probability given at creation.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class UIDBloomFilter
+{
+	private final AtomicLongArray bits;
+	private final int mask;
+	private final int hashCount;
+	private final int capacity;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity How many UIDs are expected to be added.
+	 * @param falsePositiveRate The wanted false positive rate once the capacity is reached, between 0 and 1.
+	 */
+	public UIDBloomFilter(int capacity, double falsePositiveRate)
+	{
+		this.capacity = Math.max(capacity, 16);
+		double optimalBits = -this.capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		int bitCount = Integer.highestOneBit((int) Math.min(Math.ceil(optimalBits), 1 << 30));
+		if(bitCount < optimalBits)
+			bitCount <<= 1;
+		bitCount = Math.max(bitCount, 64);
+		this.bits = new AtomicLongArray(bitCount >>> 6);
+		this.mask = bitCount - 1;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.capacity * Math.log(2)));
+	}
+
+	/**
+	 * Used to add a UID to the filter.
+	 *
+	 * @param uid The UID, without any tirets.
+	 */
+	public void add(String uid)
+	{
+		int hash1 = hash(uid, 0x811C9DC5);
+		int hash2 = hash(uid, 0x5BD1E995) | 1;
+		for(int i = 0; i < hashCount; i++)
+		{
+			int bit = (hash1 + i * hash2) & mask;
+			long value = 1L << bit;
+			int index = bit >>> 6;
+			long current;
+			while(((current = bits.get(index)) & value) == 0 && !bits.compareAndSet(index, current, current | value))
+				;
+		}
+	}
+
+	/**
+	 * Used to know if a UID may have been added to the filter.
+	 *
+	 * @param uid The UID, without any tirets.
+	 * @return False if the UID is surely unknown, true if it may be known.
+	 */
+	public boolean mightContain(String uid)
+	{
+		int hash1 = hash(uid, 0x811C9DC5);
+		int hash2 = hash(uid, 0x5BD1E995) | 1;
+		for(int i = 0; i < hashCount; i++)
+		{
+			int bit = (hash1 + i * hash2) & mask;
+			if((bits.get(bit >>> 6) & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Used to get how many UIDs the filter has been sized for.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Used to hash a UID with the FNV-1a algorithm followed by a final mix.
+	 *
+	 * @param uid The UID to hash.
+	 * @param seed The initial value of the hash.
+	 * @return The hash.
+	 */
+	private static int hash(String uid, int seed)
+	{
+		int hash = seed;
+		for(int i = 0; i < uid.length(); i++)
+		{
+			hash ^= uid.charAt(i);
+			hash *= 0x01000193;
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
@@ -1,19 +1,29 @@
 package fr.mrcraftcod.polytech.DI.RFID.utils;
 
 import fr.mrcraftcod.polytech.DI.RFID.frames.MainFrame;
+import fr.mrcraftcod.polytech.DI.RFID.interfaces.CheckListener;
+import fr.mrcraftcod.polytech.DI.RFID.objects.CardReader;
 import fr.mrcraftcod.polytech.DI.RFID.objects.Configuration;
 import fr.mrcraftcod.polytech.DI.RFID.objects.Group;
-import fr.mrcraftcod.polytech.DI.RFID.objects.Period;
+import fr.mrcraftcod.polytech.DI.RFID.objects.ScheduleTimeline;
 import fr.mrcraftcod.polytech.DI.RFID.objects.Student;
-import fr.mrcraftcod.polytech.DI.TerminalReader.threads.TerminalReader;
+import fr.mrcraftcod.polytech.DI.RFID.threads.AbsentsFinaliser;
+import fr.mrcraftcod.polytech.DI.RFID.threads.DatabaseMonitor;
+import fr.mrcraftcod.polytech.DI.RFID.threads.LoadGenerator;
+import fr.mrcraftcod.polytech.DI.RFID.threads.PeriodScheduler;
+import fr.mrcraftcod.polytech.DI.RFID.threads.TapPipeline;
+import fr.mrcraftcod.polytech.DI.RFID.threads.TapReplayer;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.file.Files;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,14 +37,30 @@ public class Utils
 {
 	public static Logger logger;
 	public static SQLManager sql;
-	public static ArrayList<Student> students;
-	public static ArrayList<Group> groups;
+	public static StudentCache studentCache;
+	public static StudentRegistry students;
+	public static List<Group> groups;
 	public static ResourceBundle resourceBundle;
 	public static ArrayList<BufferedImage> icons;
 	public static File baseFile;
 	public static Configuration configuration;
-	public static TerminalReader terminalReader;
+	public static List<CardReader> readers;
+	public static TapPipeline tapPipeline;
+	public static EnrollmentQueue enrollmentQueue;
+	public static DatabaseMonitor databaseMonitor;
+	public static CheckJournal checkJournal;
+	public static ScheduleExceptions scheduleExceptions;
+	public static ScheduleTimeline scheduleTimeline;
+	public static PeriodScheduler periodScheduler;
+	public static AbsentsFinaliser absentsFinaliser;
 	private static MainFrame mainFrame;
+	private static boolean headless;
+	private static File replayFile;
+	private static double replaySpeed = 1;
+	private static LoadGenerator loadGenerator;
+	private static final AtomicBoolean shutdown = new AtomicBoolean();
+	private static final CopyOnWriteArrayList<CheckListener> checkListeners = new CopyOnWriteArrayList<>();
+	private static final Object checksLogLock = new Object();
 
 	/**
 	 * Call when we need to exit the program.
@@ -44,11 +70,31 @@ public class Utils
 	 */
 	public static void exit(int exitStaus)
 	{
-		mainFrame.exit();
+		shutdown();
+		System.exit(exitStaus);
+	}
+
+	/**
+	 * Used to stop the threads and save the state of the program. Only the first call does something.
+	 */
+	private static void shutdown()
+	{
+		if(shutdown.getAndSet(true))
+			return;
+		if(mainFrame != null)
+			mainFrame.exit();
+		databaseMonitor.stop();
+		// Nothing may check a student once the journal is closed.
+		for(CardReader reader : readers)
+			reader.stop();
+		tapPipeline.stop();
+		periodScheduler.stop();
+		absentsFinaliser.stop();
+		checkJournal.close();
+		logger.log(Level.INFO, "Students cache statistics: " + studentCache);
 		Group.saveGroups(Utils.groups);
 		configuration.serialize(new File(baseFile, "configuration"));
-		terminalReader.stop();
-		System.exit(exitStaus);
+		StudentSnapshot.save(new File(baseFile, "students.snapshot"), students.getStudents());
 	}
 
 	/**
@@ -220,9 +266,58 @@ public class Utils
 			group.uncheckStudent(student);
 	}
 
+	/**
+	 * Used to add a listener of the checks of all the groups.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public static void addCheckListener(CheckListener listener)
+	{
+		checkListeners.add(listener);
+	}
+
+	/**
+	 * Used to remove a listener of the checks.
+	 *
+	 * @param listener The listener to remove.
+	 */
+	public static void removeCheckListener(CheckListener listener)
+	{
+		checkListeners.remove(listener);
+	}
+
+	/**
+	 * Used to notify the listeners that a student has been checked or unchecked.
+	 *
+	 * @param group The group where the student has been checked.
+	 * @param student The student.
+	 * @param checked True if checked, false if unchecked.
+	 */
+	public static void fireCheckChanged(Group group, Student student, boolean checked)
+	{
+		for(CheckListener listener : checkListeners)
+			if(checked)
+				listener.studentChecked(group, student);
+			else
+				listener.studentUnchecked(group, student);
+	}
+
 	/**
 	 * Call when the program is starting. Initalize some variables like
 	 * groups, students, logger, reader and SQL connection.
+	 * <p>
+	 * With the <b>--headless</b> argument, no frame is created: taps are reported in the logs and the program saves its
+	 * state when the JVM is stopped.
+	 * <p>
+	 * With the <b>--replay</b> argument, the taps of the given checked log are replayed in a copy of the data folder,
+	 * at the speed given by <b>--replay-speed</b> (1 by default, 0 for as fast as possible). The program exits at the
+	 * end of the replay if headless.
+	 * <p>
+	 * With the <b>--virtual-threads</b> argument, the taps, the database requests and the log writes are run on virtual
+	 * threads, see {@link Threads}.
+	 * <p>
+	 * With the <b>--load</b> argument, synthetic taps are generated as described in {@link LoadGenerator}, in an empty
+	 * data folder and with the students in memory instead of the database.
 	 *
 	 * @param args The program arguments.
 	 * @throws IOException If files couldn't be read.
@@ -237,18 +332,135 @@ public class Utils
 		logger = Logger.getLogger("TerminalReader");
 		resourceBundle = ResourceBundle.getBundle("lang/messages", Locale.getDefault());
 		baseFile = new File("." + File.separator + "RFID");
-		icons = new ArrayList<>();
-		icons.add(ImageIO.read(Utils.class.getClassLoader().getResource("icons/icon16.png")));
-		icons.add(ImageIO.read(Utils.class.getClassLoader().getResource("icons/icon32.png")));
-		icons.add(ImageIO.read(Utils.class.getClassLoader().getResource("icons/icon64.png")));
 		configuration = Configuration.deserialize(new File(baseFile, "configuration"));
 		processArgs(args);
-		terminalReader = new TerminalReader(configuration.getReaderName());
-		sql = new SQLManager(configuration.getBddIP(), configuration.getBddPort(), configuration.getBddName(), configuration.getBddTableName(), configuration.getBddUser(), configuration.getBddPassword());
-		students = Utils.sql.getAllStudents();
-		groups = Group.loadGroups();
-		mainFrame = new MainFrame();
-		terminalReader.addListener(mainFrame);
+		loadGenerator = LoadGenerator.fromArgs(args);
+		if(loadGenerator != null)
+			baseFile = Files.createTempDirectory("RFID-load").toFile();
+		else if(replayFile != null)
+			baseFile = TapReplayer.createSandbox(baseFile);
+		if(headless)
+			System.setProperty("java.awt.headless", "true");
+		else
+		{
+			icons = new ArrayList<>();
+			icons.add(ImageIO.read(Utils.class.getClassLoader().getResource("icons/icon16.png")));
+			icons.add(ImageIO.read(Utils.class.getClassLoader().getResource("icons/icon32.png")));
+			icons.add(ImageIO.read(Utils.class.getClassLoader().getResource("icons/icon64.png")));
+		}
+		if(loadGenerator != null)
+			sql = loadGenerator.createDatabase();
+		else
+			sql = new SQLManager(configuration.getBddIP(), configuration.getBddPort(), configuration.getBddName(), configuration.getBddTableName(), configuration.getBddUser(), configuration.getBddPassword());
+		studentCache = new StudentCache(sql, configuration.getStudentCacheSize());
+		students = new StudentRegistry(StudentSnapshot.load(new File(baseFile, "students.snapshot")));
+		groups = new CopyOnWriteArrayList<>(Group.loadGroups());
+		if(loadGenerator != null)
+			groups.addAll(loadGenerator.createGroups());
+		scheduleExceptions = new ScheduleExceptions(new File(baseFile, "exceptions.txt"));
+		ScheduleTimeline timeline = new ScheduleTimeline();
+		timeline.rebuild(groups);
+		scheduleTimeline = timeline;
+		absentsFinaliser = new AbsentsFinaliser();
+		CheckJournal journal = new CheckJournal(new File(baseFile, "checks.journal"));
+		for(Group group : groups)
+			group.update();
+		journal.restore(groups);
+		checkJournal = journal;
+		tapPipeline = new TapPipeline(configuration.getDebounceDelay());
+		enrollmentQueue = new EnrollmentQueue();
+		databaseMonitor = new DatabaseMonitor();
+		periodScheduler = new PeriodScheduler();
+		if(headless)
+		{
+			tapPipeline.addListener(new LoggingTapListener());
+			Runtime.getRuntime().addShutdownHook(new Thread(Utils::shutdown, "Shutdown"));
+		}
+		else
+		{
+			mainFrame = new MainFrame();
+			tapPipeline.addListener(mainFrame);
+			enrollmentQueue.addListener(mainFrame);
+			periodScheduler.addListener(mainFrame);
+			addCheckListener(mainFrame);
+		}
+		tapPipeline.start();
+		databaseMonitor.start();
+		absentsFinaliser.start();
+		checkJournal.start();
+		periodScheduler.start();
+		readers = new CopyOnWriteArrayList<>();
+		setReaders(configuration.getReaderNames());
+		Threads.start("StudentsSync", true, Utils::syncStudents);
+		if(loadGenerator != null)
+			loadGenerator.start(tapPipeline, headless ? () -> exit(0) : null);
+		else if(replayFile != null)
+			new TapReplayer(BatchCheckIn.readTaps(replayFile), tapPipeline, replaySpeed, headless ? () -> exit(0) : null).start();
+	}
+
+	/**
+	 * Used to change the readers listened, starting the new ones and stopping the ones not in the list anymore. All of
+	 * them feed the same tap pipeline.
+	 *
+	 * @param readerNames The names of the readers, empty to use the default reader.
+	 */
+	public static synchronized void setReaders(List<String> readerNames)
+	{
+		ArrayList<String> names = new ArrayList<>(readerNames);
+		if(names.isEmpty())
+			names.add("");
+		for(CardReader reader : readers)
+			if(!names.contains(reader.getName()))
+			{
+				reader.stop();
+				readers.remove(reader);
+			}
+		for(String name : names)
+		{
+			boolean listened = false;
+			for(CardReader reader : readers)
+				listened |= reader.getName().equals(name);
+			if(!listened)
+			{
+				CardReader reader = new CardReader(name, tapPipeline);
+				if(mainFrame != null)
+					reader.addListener(mainFrame);
+				readers.add(reader);
+			}
+		}
+		configuration.setReaderNames(new ArrayList<>(readerNames));
+	}
+
+	/**
+	 * Used to connect to the database and replace the students loaded from the snapshot by its ones. The snapshot is
+	 * then updated.
+	 */
+	private static void syncStudents()
+	{
+		Utils.logger.log(Level.INFO, "Initializing SQL connection...");
+		if(!sql.login())
+			return;
+		sql.createBaseTable();
+		ArrayList<Student> databaseStudents = sql.loadAllStudents();
+		if(databaseStudents != null)
+			syncStudents(databaseStudents);
+	}
+
+	/**
+	 * Used to replace the known students by the ones of the database and update the snapshot. The students deleted or
+	 * renamed in the database are forgotten, except the ones enrolled but not yet added to the database.
+	 *
+	 * @param databaseStudents All the students read from the database.
+	 */
+	public static void syncStudents(ArrayList<Student> databaseStudents)
+	{
+		int previous = students.size();
+		ArrayList<Student> known = new ArrayList<>(databaseStudents);
+		known.addAll(enrollmentQueue.getPendingInserts());
+		students.replaceAll(known);
+		studentCache.clear();
+		Utils.logger.log(Level.INFO, "Synchronized students with database, " + students.size() + " students (" + previous + " before)");
+		StudentSnapshot.save(new File(baseFile, "students.snapshot"), students.getStudents());
 	}
 
 	/**
@@ -262,6 +474,16 @@ public class Utils
 		{
 			if(args[i].equals("-b"))
 				configuration.setBddName(args[i + 1]);
+			else if(args[i].equals("-d"))
+				configuration.setDebounceDelay(Long.parseLong(args[i + 1]));
+			else if(args[i].equals("--headless"))
+				headless = true;
+			else if(args[i].equals("--virtual-threads"))
+				Threads.setVirtual(true);
+			else if(args[i].equals("--replay"))
+				replayFile = new File(args[i + 1]);
+			else if(args[i].equals("--replay-speed"))
+				replaySpeed = Double.parseDouble(args[i + 1]);
 		}
 	}
 
@@ -274,14 +496,17 @@ public class Utils
 	 */
 	public static Student getStudentByName(String name, boolean checkDB)
 	{
-		for(Student student : students)
-			if(student != null && student.isSameName(name))
-				return student;
-		return checkDB ? Utils.sql.getStudentByName(capitalize(name.substring(0, name.lastIndexOf(" ")).trim().toLowerCase()), name.substring(name.lastIndexOf(" ")).trim()) : null;
+		Student student = students.getByName(name);
+		if(student != null)
+			return student;
+		return checkDB ? Utils.studentCache.getStudentByName(capitalize(name.substring(0, name.lastIndexOf(" ")).trim().toLowerCase()), name.substring(name.lastIndexOf(" ")).trim()) : null;
 	}
 
 	/**
 	 * Used to get a student by his UID.
+	 * <p>
+	 * A UID rejected by the filter of the known students is searched in the database through the cache, which remembers
+	 * the unknown UIDs for a while.
 	 *
 	 * @param uid The student's card UID.
 	 * @param checkDB Should check him in the database if we don't know him?
@@ -289,10 +514,11 @@ public class Utils
 	 */
 	public static Student getStudentByUID(String uid, boolean checkDB)
 	{
-		for(Student student : students)
-			if(student != null && student.getUid().equals(uid.replaceAll("-", "")))
-				return student;
-		return checkDB ? Utils.sql.getStudentByUID(uid.replaceAll("-", "")) : null;
+		String rawUid = Student.normaliseUID(uid);
+		Student student = students.mightContainUID(rawUid) ? students.getByUID(rawUid) : null;
+		if(student != null)
+			return student;
+		return checkDB ? Utils.studentCache.getStudentByUID(rawUid) : null;
 	}
 
 	/**
@@ -302,63 +528,46 @@ public class Utils
 	 */
 	public static void logCheck(Student student)
 	{
-		if(!configuration.isLogAll())
+		logChecks(Collections.singletonList(new AbstractMap.SimpleEntry<>(new Date(WeekClock.currentTimeMillis()), student)));
+	}
+
+	/**
+	 * Used to log several checks in the CSV files, each file being opened only once. The files are written by one thread
+	 * at a time.
+	 *
+	 * @param checks The checks to log, as the date of the check and the student that checked.
+	 */
+	public static void logChecks(List<? extends Map.Entry<Date, Student>> checks)
+	{
+		if(!configuration.isLogAll() || checks.isEmpty())
 			return;
-		FileWriter fileWriter = null;
-		BufferedWriter bufferedWriter = null;
-		PrintWriter printWriter = null;
-		try
+		DateFormat dateFormat = new SimpleDateFormat("[zzz] dd/MM/yyyy HH:mm:ss");
+		Calendar calendar = Calendar.getInstance();
+		TreeMap<Integer, StringBuilder> linesByYear = new TreeMap<>();
+		for(Map.Entry<Date, Student> check : checks)
 		{
-			DateFormat dateFormat = new SimpleDateFormat("[zzz] dd/MM/yyyy HH:mm:ss");
-			Date date = new Date();
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTime(date);
-			File file = new File(baseFile, "Log" + File.separator + "checked_" + calendar.get(Calendar.YEAR) + ".csv");
-			if(!file.exists())
+			calendar.setTime(check.getKey());
+			StringBuilder lines = linesByYear.get(calendar.get(Calendar.YEAR));
+			if(lines == null)
+				linesByYear.put(calendar.get(Calendar.YEAR), lines = new StringBuilder());
+			lines.append(dateFormat.format(check.getKey())).append(";").append(check.getValue().getName()).append(";").append(check.getValue().getRawUid()).append("\n");
+		}
+		synchronized(checksLogLock)
+		{
+			for(Map.Entry<Integer, StringBuilder> lines : linesByYear.entrySet())
 			{
+				File file = new File(baseFile, "Log" + File.separator + "checked_" + lines.getKey() + ".csv");
 				file.getParentFile().mkdirs();
-				try
+				try(PrintWriter printWriter = new PrintWriter(new BufferedWriter(new FileWriter(file, true))))
 				{
-					file.createNewFile();
+					printWriter.print(lines.getValue());
 				}
-				catch(IOException exception)
+				catch(Exception exception)
 				{
-					exception.printStackTrace();
+					Utils.logger.log(Level.SEVERE, "Cannot write checked file", exception);
 				}
 			}
-			fileWriter = new FileWriter(file, true);
-			bufferedWriter = new BufferedWriter(fileWriter);
-			printWriter = new PrintWriter(bufferedWriter);
-			printWriter.print(dateFormat.format(date) + ";" + student.getName() + ";" + student.getUid().replaceAll("-", "") + "\n");
 		}
-		catch(Exception exception)
-		{
-			Utils.logger.log(Level.SEVERE, "Cannot write checked file", exception);
-		}
-		if(printWriter != null)
-			try
-			{
-				printWriter.close();
-			}
-			catch(Exception exception)
-			{
-			}
-		if(bufferedWriter != null)
-			try
-			{
-				bufferedWriter.close();
-			}
-			catch(Exception exception)
-			{
-			}
-		if(fileWriter != null)
-			try
-			{
-				fileWriter.close();
-			}
-			catch(Exception exception)
-			{
-			}
 	}
 
 	/**
@@ -376,111 +585,6 @@ public class Utils
 		return list;
 	}
 
-	/**
-	 * Used to log all absents students in a CSV file with their name.
-	 *
-	 * @param period The period when the students haven't checked.
-	 * @param students The list of all the students that need to check.
-	 * @param checkedStudents The students that have checked.
-	 */
-	public static void writeAbsents(Period period, ArrayList<Student> students, ArrayList<Student> checkedStudents)
-	{
-		for(Student student : students)
-			if(!checkedStudents.contains(student))
-			{
-				logger.log(Level.INFO, student + " is missing");
-				FileWriter fileWriter = null;
-				BufferedWriter bufferedWriter = null;
-				PrintWriter printWriter = null;
-				try
-				{
-					DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-					Date date = new Date();
-					Calendar calendar = Calendar.getInstance();
-					calendar.setTime(date);
-					File file = new File(baseFile, "Absents" + File.separator + "absent_" + student.getName() + "_" + calendar.get(Calendar.YEAR) + "_" + (calendar.get(Calendar.MONTH) + 1) + ".csv");
-					if(!file.exists())
-					{
-						file.getParentFile().mkdirs();
-						try
-						{
-							file.createNewFile();
-						}
-						catch(IOException exception)
-						{
-							exception.printStackTrace();
-						}
-					}
-					String last = "";
-					List<String> lines = readTextFile(file);
-					if(period != null && lines.size() > 0 && lines.get(lines.size() - 1).startsWith("Total"))
-					{
-						last = lines.get(lines.size() - 1);
-						lines.remove(lines.size() - 1);
-					}
-					fileWriter = new FileWriter(file, false);
-					bufferedWriter = new BufferedWriter(fileWriter);
-					printWriter = new PrintWriter(bufferedWriter);
-					for(String line : lines)
-						printWriter.println(line);
-					printWriter.print(dateFormat.format(date));
-					printWriter.print(";");
-					printWriter.print(student.getName());
-					if(period != null)
-					{
-						printWriter.print(";");
-						printWriter.print(period.getRawTimeInterval());
-						printWriter.print(";");
-						printWriter.print(period.getDurationString());
-					}
-					printWriter.println();
-					if(period != null)
-					{
-						if(last.equals(""))
-						{
-							printWriter.println("Total;" + period.getDurationString());
-						}
-						else
-						{
-							String[] vals = last.split(";");
-							String duration = vals[vals.length - 1];
-							int timeLast = stringToDuration(duration);
-							int timeNow = (int) period.getDuration();
-							printWriter.println("Total;" + durationToString(timeLast + timeNow));
-						}
-					}
-				}
-				catch(Exception exception)
-				{
-					Utils.logger.log(Level.SEVERE, "Cannot write checked file", exception);
-				}
-				if(printWriter != null)
-					try
-					{
-						printWriter.close();
-					}
-					catch(Exception exception)
-					{
-					}
-				if(bufferedWriter != null)
-					try
-					{
-						bufferedWriter.close();
-					}
-					catch(Exception exception)
-					{
-					}
-				if(fileWriter != null)
-					try
-					{
-						fileWriter.close();
-					}
-					catch(Exception exception)
-					{
-					}
-			}
-	}
-
 	/**
 	 * Used to convert a time in seconds to a string like xxHyy, where xx are hours and yy minutes.
 	 *
@@ -526,24 +630,18 @@ public class Utils
 	{
 		if(collection == null || collection.size() < 1)
 			return false;
-		try
-		{
-			if(collection.iterator().next() instanceof Vector)
-				for(Object obj : collection)
-				{
-					Vector<Student> vec = (Vector<Student>) obj;
-					for(Student stu : vec)
-						if(stu.equals(student))
-							return true;
-				}
-			else
-				for(Student stu : (Collection<Student>) collection)
-					if(stu != null && stu.equals(student))
+		if(collection.iterator().next() instanceof Vector)
+			for(Object obj : collection)
+			{
+				Vector<Student> vec = (Vector<Student>) obj;
+				for(Student stu : vec)
+					if(stu.equals(student))
 						return true;
-		}
-		catch(ConcurrentModificationException e)
-		{
-		}
+			}
+		else
+			for(Student stu : (Collection<Student>) collection)
+				if(stu != null && stu.equals(student))
+					return true;
 		return false;
 	}
 
@@ -575,7 +673,7 @@ public class Utils
 	 */
 	public static ArrayList<Student> getRefreshedStudents()
 	{
-		ArrayList<Student> list = new ArrayList<>(students);
+		ArrayList<Student> list = new ArrayList<>(students.getStudents());
 		list.addAll(sql.getAllStudents());
 		Utils.removeDuplicates(list);
 		return list;
@@ -587,6 +685,7 @@ public class Utils
 	public static void reloadSQLFromConfig()
 	{
 		sql.reloadInfos(configuration.getBddIP(), configuration.getBddPort(), configuration.getBddName(), configuration.getBddTableName(), configuration.getBddUser(), configuration.getBddPassword());
+		studentCache.clear();
 	}
 
 	/**
@@ -623,7 +722,8 @@ public class Utils
 			if(file == null)
 				return;
 			int reply = JOptionPane.showConfirmDialog(null, "<html><p>" + resourceBundle.getString("import_csv_drop").replaceAll("\n", "<br />") + "</p></html>", resourceBundle.getString("import_csv_drop_title"), JOptionPane.YES_NO_OPTION);
-			if(reply == JOptionPane.YES_OPTION)
+			boolean reset = reply == JOptionPane.YES_OPTION;
+			if(reset)
 			{
 				sql.sendUpdateRequest("DROP TABLE IF EXISTS " + sql.getTableName() + ";");
 				sql.createBaseTable();
@@ -637,12 +737,19 @@ public class Utils
 			if(UIDIndex == -1 || firstnameIndex == -1 || lastnameIndex == -1)
 				throw new IllegalArgumentException("Cannot find one of the requiered columns");
 			int req = 0;
+			ArrayList<Student> imported = new ArrayList<>();
 			for(String line : lines)
 			{
 				String[] infos = line.split(";");
-				sql.addStudentToDatabase(new Student(infos[UIDIndex], infos[lastnameIndex].replaceAll(" ", "-"), infos[firstnameIndex].replaceAll(" ", "-")));
+				Student student = new Student(infos[UIDIndex], infos[lastnameIndex].replaceAll(" ", "-"), infos[firstnameIndex].replaceAll(" ", "-"));
+				sql.addStudentToDatabase(student);
+				imported.add(student);
 				req++;
 			}
+			ArrayList<Student> databaseStudents = reset ? sql.loadAllStudents() : null;
+			if(databaseStudents != null)
+				syncStudents(databaseStudents);
+			students.addAll(imported);
 			JOptionPane.showMessageDialog(parent, String.format(resourceBundle.getString("csv_import_done"), req), resourceBundle.getString("csv_import_title"), JOptionPane.INFORMATION_MESSAGE);
 		}
 		catch(Exception e)
@@ -651,6 +758,33 @@ public class Utils
 		}
 	}
 
+	/**
+	 * Used to import taps from a file written like the checked logs, and to check them at their own time. The file is
+	 * chosen on the EDT, the taps are then checked in another thread and the result shown once done.
+	 *
+	 * @param parent The parent frame.
+	 * @see BatchCheckIn
+	 */
+	public static void importChecks(JFrame parent)
+	{
+		File file = getNewFilePatch(baseFile, JFileChooser.FILES_ONLY, new FileNameExtensionFilter(Utils.resourceBundle.getString("open_csv_description_file"), "csv"));
+		if(file == null)
+			return;
+		Threads.start("ChecksImport", true, () -> {
+			try
+			{
+				BatchCheckIn.Result result = BatchCheckIn.checkIn(BatchCheckIn.readTaps(file));
+				String message = "<html><p>" + String.format(resourceBundle.getString("checks_import_done"), result.getCount(BatchCheckIn.Outcome.CHECKED), result.getCount(BatchCheckIn.Outcome.PAST_PERIOD), result.getRemovedAbsences(), result.getCount(BatchCheckIn.Outcome.ALREADY_CHECKED), result.getCount(BatchCheckIn.Outcome.NO_PERIOD), result.getCount(BatchCheckIn.Outcome.UNKNOWN)).replaceAll("\n", "<br />") + "</p></html>";
+				SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(parent, message, resourceBundle.getString("checks_import_title"), JOptionPane.INFORMATION_MESSAGE));
+			}
+			catch(Exception e)
+			{
+				Utils.logger.log(Level.WARNING, "Failed to import checks from " + file.getAbsolutePath(), e);
+				SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(parent, resourceBundle.getString("checks_import_error"), resourceBundle.getString("checks_import_title"), JOptionPane.ERROR_MESSAGE));
+			}
+		});
+	}
+
 	/**
 	 * Used to get the index of an object in an array.
 	 *
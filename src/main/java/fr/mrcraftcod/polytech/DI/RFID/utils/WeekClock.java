@@ -0,0 +1,124 @@
+package fr.mrcraftcod.polytech.DI.RFID.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Used to convert instants to minutes of the week in the default time zone.
+ * <p>
+ * The offset of the zone is cached until its next transition (daylight saving time), so a conversion is only a few
+ * integer operations and allocates nothing, except when a transition is crossed.
+ * <p>
+ * The current time of the program is given by {@link #currentTimeMillis()}. It can be shifted with
+ * {@link #setReplayOffset(long)}, so recorded taps are replayed against the periods of the day they were recorded.
+ *
+ * @author COLEAU Victor, COUCHOUD Thomas
+ */
+public class WeekClock
+{
+	public static final int MINUTES_PER_DAY = 24 * 60;
+	public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+	private static final long MILLIS_PER_MINUTE = 60 * 1000;
+	private static final long MILLIS_PER_DAY = MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+	private static volatile ZoneOffsetCache cache = new ZoneOffsetCache(ZoneId.systemDefault(), System.currentTimeMillis());
+	private static volatile long replayOffset;
+
+	/**
+	 * Used to get the current time of the program, the system time shifted by the replay offset.
+	 *
+	 * @return The current time in milliseconds since the epoch.
+	 */
+	public static long currentTimeMillis()
+	{
+		return System.currentTimeMillis() + replayOffset;
+	}
+
+	/**
+	 * Used to shift the current time of the program, when replaying taps.
+	 *
+	 * @param offsetMillis The offset to add to the system time in milliseconds, 0 to use the system time.
+	 */
+	public static void setReplayOffset(long offsetMillis)
+	{
+		replayOffset = offsetMillis;
+	}
+
+	/**
+	 * Used to get the minute of the week of an instant.
+	 *
+	 * @param epochMillis The instant, in milliseconds since the epoch.
+	 * @return The minute of the week, 0 being monday at 00:00 and {@link #MINUTES_PER_WEEK} - 1 sunday at 23:59.
+	 */
+	public static int minuteOfWeek(long epochMillis)
+	{
+		long localMinutes = Math.floorDiv(epochMillis + getOffsetMillis(epochMillis), MILLIS_PER_MINUTE);
+		// The epoch was a thursday, the 4th day of the week.
+		return Math.floorMod(localMinutes + 3 * MINUTES_PER_DAY, MINUTES_PER_WEEK);
+	}
+
+	/**
+	 * Used to get the minute of the week of now.
+	 *
+	 * @return The minute of the week.
+	 * @see #minuteOfWeek(long)
+	 * @see #currentTimeMillis()
+	 */
+	public static int minuteOfWeek()
+	{
+		return minuteOfWeek(currentTimeMillis());
+	}
+
+	/**
+	 * Used to get the local day of an instant.
+	 *
+	 * @param epochMillis The instant, in milliseconds since the epoch.
+	 * @return The number of days since 1970-01-01 in the default time zone, as {@link java.time.LocalDate#toEpochDay()}.
+	 */
+	public static long epochDay(long epochMillis)
+	{
+		return Math.floorDiv(epochMillis + getOffsetMillis(epochMillis), MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Used to get the offset of the default time zone at an instant.
+	 *
+	 * @param epochMillis The instant, in milliseconds since the epoch.
+	 * @return The offset in milliseconds.
+	 */
+	public static long getOffsetMillis(long epochMillis)
+	{
+		ZoneOffsetCache current = cache;
+		if(epochMillis < current.validFrom || epochMillis >= current.validUntil)
+			cache = current = new ZoneOffsetCache(ZoneId.systemDefault(), epochMillis);
+		return current.offsetMillis;
+	}
+
+	/**
+	 * Offset of a zone between two of its transitions.
+	 */
+	private static final class ZoneOffsetCache
+	{
+		private final long offsetMillis;
+		private final long validFrom;
+		private final long validUntil;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param zone The zone.
+		 * @param epochMillis The instant to get the offset for.
+		 */
+		private ZoneOffsetCache(ZoneId zone, long epochMillis)
+		{
+			ZoneRules rules = zone.getRules();
+			Instant instant = Instant.ofEpochMilli(epochMillis);
+			ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+			ZoneOffsetTransition next = rules.nextTransition(instant);
+			this.offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+			this.validFrom = previous == null ? Long.MIN_VALUE : previous.getInstant().toEpochMilli();
+			this.validUntil = next == null ? Long.MAX_VALUE : next.getInstant().toEpochMilli();
+		}
+	}
+}